@@ -0,0 +1,61 @@
+package com.example.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.entity.Account;
+import com.example.service.AccountService;
+
+/*
+ * Login verification against a seeded H2 database of increasing size
+ *
+ * The time is dominated by the configured password hash work factor; the
+ * database lookup is what changes with size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AccountServiceBenchmark {
+    @Param({"1000", "100000", "10000000"})
+    int accountCount;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkDatabase.start(accountCount, 0);
+        accountService = context.getBean(AccountService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SpringApplication.exit(context);
+    }
+
+    @Benchmark
+    public Optional<Account> verifyAccountExistsFor() {
+        int user = 1 + ThreadLocalRandom.current().nextInt(accountCount);
+        Account account = new Account("user" + user, BenchmarkDatabase.PASSWORD);
+        return accountService.verifyAccountExistsFor(account).join();
+    }
+}
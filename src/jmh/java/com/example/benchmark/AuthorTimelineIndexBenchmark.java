@@ -0,0 +1,72 @@
+package com.example.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.entity.Message;
+import com.example.service.MessageService;
+
+/*
+ * The author query behind GET /accounts/{id}/messages with and without the
+ * composite (postedBy, timePostedEpoch desc, messageId desc) index, as V6 rebuilt it
+ *
+ * Without it only the foreign key index on postedBy is left, which finds the
+ * rows but leaves the ordering to a sort.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AuthorTimelineIndexBenchmark {
+    @Param({"10000000"})
+    int messageCount;
+
+    @Param({"true", "false"})
+    boolean compositeIndex;
+
+    private ConfigurableApplicationContext context;
+    private MessageService messageService;
+    private int accountCount;
+
+    @Setup
+    public void setUp() {
+        accountCount = Math.max(10, messageCount / 100);
+        // timelines off, so every read reaches the query under test
+        context = BenchmarkDatabase.start(accountCount, messageCount, "--app.timeline.capacity=0");
+
+        if (!compositeIndex) {
+            context.getBean(JdbcTemplate.class).execute("drop index idx_message_postedby_time");
+        }
+        messageService = context.getBean(MessageService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SpringApplication.exit(context);
+    }
+
+    @Benchmark
+    public List<Message> getMessagesFromUserId() {
+        int author = BenchmarkDatabase.FIRST_ID + ThreadLocalRandom.current().nextInt(accountCount);
+        return messageService.getMessagesFromUserId(author);
+    }
+}
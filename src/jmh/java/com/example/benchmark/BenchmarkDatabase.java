@@ -0,0 +1,116 @@
+package com.example.benchmark;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.example.SocialMediaApp;
+
+/*
+ * Starts the application, without a web server unless asked for one, against
+ * a private in-memory H2 database bulk-seeded for benchmarking
+ */
+final class BenchmarkDatabase {
+    // seeded ids start above the ids used by the Flyway seed rows
+    static final int FIRST_ID = 10001;
+    static final String PASSWORD = "password";
+
+    private BenchmarkDatabase() {
+    }
+
+    static ConfigurableApplicationContext start(int accountCount, int messageCount, String... extraArgs) {
+        return start(WebApplicationType.NONE, builder -> { }, accountCount, messageCount, extraArgs);
+    }
+
+    /*
+     * The rows are inserted by a Flyway afterMigrate callback, so they are in
+     * place before anything that loads state at startup (the search index,
+     * the username filter, the known-id bitset) reads the tables, exactly as
+     * with a database that already held them.
+     */
+    static ConfigurableApplicationContext start(WebApplicationType webType, Consumer<SpringApplicationBuilder> customizer,
+                                                int accountCount, int messageCount, String... extraArgs) {
+        String[] args = new String[extraArgs.length + 4];
+        args[0] = "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        args[1] = "--spring.cache.type=none";
+        args[2] = "--spring.h2.console.enabled=false";
+        args[3] = "--logging.level.root=WARN";
+        System.arraycopy(extraArgs, 0, args, 4, extraArgs.length);
+
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(SocialMediaApp.class)
+                .web(webType)
+                .logStartupInfo(false)
+                .initializers(app -> app.getBeanFactory().registerSingleton("benchmarkSeed",
+                        (FlywayConfigurationCustomizer) flyway -> flyway.callbacks(
+                                withSeed(flyway.getCallbacks(), new Seed(app, accountCount, messageCount)))));
+        customizer.accept(builder);
+        return builder.run(args);
+    }
+
+    /*
+     * Helpers
+     */
+    private static Callback[] withSeed(Callback[] callbacks, Callback seed) {
+        Callback[] all = Arrays.copyOf(callbacks, callbacks.length + 1);
+        all[callbacks.length] = seed;
+        return all;
+    }
+
+    /*
+     * Inserts accounts and messages with set-based statements, so even 10M rows
+     * take seconds. Messages are spread round-robin over the accounts, and
+     * every account's password is PASSWORD, hashed with the current scheme.
+     */
+    private static final class Seed implements Callback {
+        private final ConfigurableApplicationContext context;
+        private final int accountCount;
+        private final int messageCount;
+
+        Seed(ConfigurableApplicationContext context, int accountCount, int messageCount) {
+            this.context = context;
+            this.accountCount = accountCount;
+            this.messageCount = messageCount;
+        }
+
+        @Override
+        public boolean supports(Event event, Context flyway) {
+            return event == Event.AFTER_MIGRATE;
+        }
+
+        @Override
+        public boolean canHandleInTransaction(Event event, Context flyway) {
+            return true;
+        }
+
+        @Override
+        public void handle(Event event, Context flyway) {
+            JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(flyway.getConnection(), true));
+            String passwordHash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+
+            jdbc.update("insert into account select ? + X - 1, 'user' || X, ? from system_range(1, ?)",
+                    FIRST_ID, passwordHash, accountCount);
+            jdbc.update("insert into message select ? + X - 1, ? + mod(X, ?), 'message ' || X, 1669947792 + X " +
+                    "from system_range(1, ?)", FIRST_ID, FIRST_ID, accountCount, messageCount);
+
+            // keep generated ids clear of the seeded ones
+            jdbc.execute("alter sequence account_seq restart with " + (FIRST_ID + accountCount));
+            jdbc.execute("alter sequence message_seq restart with " + (FIRST_ID + messageCount));
+        }
+
+        @Override
+        public String getCallbackName() {
+            return "benchmarkSeed";
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.example.controller.SocialMediaController;
+import com.example.service.MessageService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * Serializing every message as a JSON array: entities through Jackson
+ * versus the rows GET /messages streams
+ *
+ * Both write to a discarding stream, so only reading and encoding are
+ * measured. Heap allocated by the benchmark thread is divided over the rows
+ * written and printed per iteration; the rows path fails the run if it goes
+ * over ROW_BYTES_BUDGET. In-memory H2 hands back the Strings it stores, so
+ * rows measures close to 0 bytes per row against about 600 for entities;
+ * the budget leaves room for one text String per row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MessageJsonBenchmark {
+    private static final long ROW_BYTES_BUDGET = 64;
+
+    @Param({"1000", "100000"})
+    int messageCount;
+
+    private ConfigurableApplicationContext context;
+    private MessageService messageService;
+    private SocialMediaController controller;
+    private ObjectMapper objectMapper;
+
+    private com.sun.management.ThreadMXBean threads;
+    private long allocatedAtStart;
+    private long rowsWritten;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkDatabase.start(Math.max(10, messageCount / 100), messageCount);
+        messageService = context.getBean(MessageService.class);
+        controller = context.getBean(SocialMediaController.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+
+    @TearDown
+    public void tearDown() {
+        SpringApplication.exit(context);
+    }
+
+    @Setup(Level.Iteration)
+    public void startCounting() {
+        rowsWritten = 0;
+        allocatedAtStart = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkAllocation(BenchmarkParams params) {
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedAtStart;
+        long perRow = rowsWritten == 0 ? 0 : allocated / rowsWritten;
+        System.out.println(" " + perRow + " bytes allocated per row");
+
+        if (params.getBenchmark().endsWith(".rows") && perRow > ROW_BYTES_BUDGET) {
+            throw new IllegalStateException(perRow + " bytes allocated per row, budget is " + ROW_BYTES_BUDGET);
+        }
+    }
+
+    @Benchmark
+    public void entities() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), messageService.getAllMessages());
+        rowsWritten += messageCount;
+    }
+
+    @Benchmark
+    public void rows() throws IOException {
+        ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+        controller.getAllMessages(request).getBody().writeTo(OutputStream.nullOutputStream());
+        rowsWritten += messageCount;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.benchmark;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.entity.Message;
+import com.example.service.MessageService;
+
+/*
+ * MessageService against a seeded H2 database of increasing size
+ *
+ * getAllMessages materializes the whole table, so at 10M rows it is expected
+ * to need most of the heap or fail outright; that is the baseline the paged
+ * and streamed reads are measured against.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MessageServiceBenchmark {
+    @Param({"1000", "100000", "10000000"})
+    int messageCount;
+
+    private ConfigurableApplicationContext context;
+    private MessageService messageService;
+    private int accountCount;
+
+    @Setup
+    public void setUp() {
+        // about a hundred messages per author at every size
+        accountCount = Math.max(10, messageCount / 100);
+        context = BenchmarkDatabase.start(accountCount, messageCount);
+        messageService = context.getBean(MessageService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SpringApplication.exit(context);
+    }
+
+    @Benchmark
+    public Optional<Message> createMessage() {
+        Message message = new Message(randomAuthor(), "benchmark message", 1669947792L);
+        return messageService.createMessage(message);
+    }
+
+    @Benchmark
+    public List<Message> getAllMessages() {
+        return messageService.getAllMessages();
+    }
+
+    @Benchmark
+    public List<Message> getMessagesFromUserId() {
+        return messageService.getMessagesFromUserId(randomAuthor());
+    }
+
+    /*
+     * Helper
+     */
+    private int randomAuthor() {
+        return BenchmarkDatabase.FIRST_ID + ThreadLocalRandom.current().nextInt(accountCount);
+    }
+}
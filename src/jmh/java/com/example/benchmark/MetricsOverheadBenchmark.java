@@ -0,0 +1,177 @@
+package com.example.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.Filter;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.example.config.MetricsConfig;
+import com.example.entity.Message;
+import com.example.service.AccountService;
+import com.example.service.MessageService;
+
+/*
+ * Cost of the metrics per request: the same work with and without them
+ *
+ * A whole request costs far more than its instrumentation and varies by
+ * more than the 1 us budget, so each instrumented layer is timed on its
+ * own and metrics=on is compared with metrics=off:
+ *   serviceCall     an in-memory service call, the service timer
+ *   request         the same call behind the servlet filters and the
+ *                   handler's interceptors, adding http.server.requests
+ *   repositoryQuery a one-row query, adding the service and repository
+ *                   timers, Hibernate statistics and the Hikari pool metrics
+ * With metrics off the actuator's metrics auto-configuration, Hibernate
+ * statistics and MetricsConfig are all removed.
+ *   mvn -Pjmh test-compile exec:exec -Djmh.args=MetricsOverheadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 2, jvmArgsAppend = "-Xmx1g")
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 10, time = 2)
+public class MetricsOverheadBenchmark {
+    private static final String METRICS_AUTO_CONFIGURATIONS =
+            "org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration,"
+            + "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration,"
+            + "org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration,"
+            + "org.springframework.boot.actuate.autoconfigure.metrics.export.prometheus.PrometheusMetricsExportAutoConfiguration,"
+            + "org.springframework.boot.actuate.autoconfigure.metrics.web.servlet.WebMvcMetricsAutoConfiguration,"
+            + "org.springframework.boot.actuate.autoconfigure.metrics.data.RepositoryMetricsAutoConfiguration,"
+            + "org.springframework.boot.actuate.autoconfigure.metrics.orm.jpa.HibernateMetricsAutoConfiguration,"
+            + "org.springframework.boot.actuate.autoconfigure.metrics.jdbc.DataSourcePoolMetricsAutoConfiguration,"
+            + "org.springframework.boot.actuate.autoconfigure.metrics.cache.CacheMetricsAutoConfiguration,"
+            + "org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration";
+
+    private static final String RESULT = "result";
+
+    @Param({"on", "off"})
+    String metrics;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+    private MessageService messageService;
+    private HandlerExecutionChain handler;
+    private Filter[] filters;
+
+    // stands in for the DispatcherServlet: the handler's interceptors around the service call
+    private final HttpServlet servlet = new HttpServlet() {
+        @Override
+        protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException {
+            try {
+                List<HandlerInterceptor> interceptors = handler.getInterceptorList();
+                for (HandlerInterceptor interceptor : interceptors) {
+                    interceptor.preHandle(request, response, handler.getHandler());
+                }
+                request.setAttribute(RESULT, serviceCall());
+                for (int i = interceptors.size() - 1; i >= 0; i--) {
+                    interceptors.get(i).afterCompletion(request, response, handler.getHandler(), null);
+                }
+            } catch (Exception e) {
+                throw new ServletException(e);
+            }
+        }
+    };
+
+    @Setup
+    public void setUp() throws Exception {
+        if ("on".equals(metrics)) {
+            context = BenchmarkDatabase.start(WebApplicationType.SERVLET, builder -> { }, 10, 1000, "--server.port=0");
+        } else {
+            context = BenchmarkDatabase.start(WebApplicationType.SERVLET,
+                    builder -> builder.initializers(app -> app.addBeanFactoryPostProcessor(withoutMetricsConfig())),
+                    10, 1000,
+                    "--server.port=0",
+                    "--spring.autoconfigure.exclude=" + METRICS_AUTO_CONFIGURATIONS,
+                    "--spring.jpa.properties.hibernate.generate_statistics=false");
+        }
+        accountService = context.getBean(AccountService.class);
+        messageService = context.getBean(MessageService.class);
+        // the handler lookup is the same either way and noisier than the metrics, so it is done once
+        handler = context.getBean("requestMappingHandlerMapping", RequestMappingHandlerMapping.class)
+                .getHandler(new MockHttpServletRequest("GET", "/messages/" + BenchmarkDatabase.FIRST_ID));
+
+        List<Filter> chain = new ArrayList<>(context.getBeansOfType(Filter.class).values());
+        for (FilterRegistrationBean<?> registration : context.getBeansOfType(FilterRegistrationBean.class).values()) {
+            chain.add(registration.getFilter());
+        }
+        filters = chain.toArray(new Filter[0]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SpringApplication.exit(context);
+    }
+
+    @Benchmark
+    public boolean serviceCall() {
+        return accountService.accountExists(BenchmarkDatabase.FIRST_ID);
+    }
+
+    @Benchmark
+    public Object request() throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/messages/" + BenchmarkDatabase.FIRST_ID);
+        // what the handler lookup leaves behind, the uri tag of http.server.requests
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/messages/{messageId}");
+
+        new MockFilterChain(servlet, filters).doFilter(request, new MockHttpServletResponse());
+        return request.getAttribute(RESULT);
+    }
+
+    @Benchmark
+    public List<Message> repositoryQuery() {
+        return messageService.getMessagesAfter(BenchmarkDatabase.FIRST_ID, 1);
+    }
+
+    /*
+     * Helper, MetricsConfig is component-scanned so it and its beans are dropped by name
+     */
+    private static BeanFactoryPostProcessor withoutMetricsConfig() {
+        return beanFactory -> {
+            BeanDefinitionRegistry registry = (BeanDefinitionRegistry) beanFactory;
+            for (String name : registry.getBeanDefinitionNames()) {
+                BeanDefinition definition = registry.getBeanDefinition(name);
+                if ("metricsConfig".equals(definition.getFactoryBeanName())
+                        || definition.getFactoryMethodName() != null
+                        && MetricsConfig.class.getName().equals(definition.getBeanClassName())) {
+                    registry.removeBeanDefinition(name);
+                }
+            }
+            registry.removeBeanDefinition("metricsConfig");
+        };
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.entity.Message;
+import com.example.service.AccountService;
+import com.example.service.MessageService;
+
+/*
+ * Throughput of the POST /messages and GET /messages/{id} service paths
+ * with the default settings versus the prod profile
+ *
+ * Several threads share the pool, and the message cache and author
+ * timelines are off, so each read reaches the database. postMessage and
+ * getMessage alone only use a few distinct statements, which H2's default
+ * per-connection statement cache already holds; requestMix runs the two
+ * among the other reads and writes a live server's connections also see,
+ * which is where the larger cache shows:
+ *   mvn -Pjmh test-compile exec:exec -Djmh.args=PoolTuningBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+@Fork(value = 2, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PoolTuningBenchmark {
+    private static final int ACCOUNT_COUNT = 1000;
+    private static final int MESSAGE_COUNT = 100_000;
+
+    @Param({"default", "prod"})
+    String profile;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+    private MessageService messageService;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkDatabase.start(ACCOUNT_COUNT, MESSAGE_COUNT, "--spring.profiles.active=" + profile, "--app.timeline.capacity=0");
+        accountService = context.getBean(AccountService.class);
+        messageService = context.getBean(MessageService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SpringApplication.exit(context);
+    }
+
+    // what the controller does for POST /messages: check the author, then insert
+    @Benchmark
+    public Optional<Message> postMessage() {
+        int author = randomAuthor();
+        if (!accountService.accountExists(author)) {
+            throw new IllegalStateException("seeded account " + author + " missing");
+        }
+        return messageService.createMessage(new Message(author, "benchmark message", 1669947792L));
+    }
+
+    @Benchmark
+    public Optional<Message> getMessage() {
+        return messageService.getMessageById(randomMessage());
+    }
+
+    // POST /messages and GET /messages/{id}, each followed by other endpoints' statements
+    @Benchmark
+    public int requestMix() {
+        int author = randomAuthor();
+        int found = postMessage().isPresent() ? 1 : 0;
+        found += messageService.getMessagesAfter(randomMessage(), 10).size();
+        found += messageService.getMessagesFromUserId(author).size();
+        found += accountService.findAccountById(author).isPresent() ? 1 : 0;
+
+        found += getMessage().isPresent() ? 1 : 0;
+        found += messageService.getMessagesFromUserIdBefore(author, Long.MAX_VALUE, Integer.MAX_VALUE, 10).size();
+        found += accountService.findAccountByUsername("user" + (author - BenchmarkDatabase.FIRST_ID + 1)).isPresent() ? 1 : 0;
+        found += accountService.isUsernameAvailable("user" + (author - BenchmarkDatabase.FIRST_ID + 1)) ? 0 : 1;
+        found += messageService.updateMessage(new Message(randomMessage(), author, "edited", 1669947792L), null);
+        return found;
+    }
+
+    /*
+     * Helpers
+     */
+    private static int randomAuthor() {
+        return BenchmarkDatabase.FIRST_ID + ThreadLocalRandom.current().nextInt(ACCOUNT_COUNT);
+    }
+
+    private static int randomMessage() {
+        return BenchmarkDatabase.FIRST_ID + ThreadLocalRandom.current().nextInt(MESSAGE_COUNT);
+    }
+}
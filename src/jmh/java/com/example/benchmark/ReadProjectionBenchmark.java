@@ -0,0 +1,127 @@
+package com.example.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.example.repository.AccountCredentials;
+import com.example.repository.AccountRepository;
+import com.example.repository.MessageRepository;
+import com.example.service.MessageService;
+
+/*
+ * Reads as managed entities versus the projections the services now use
+ *
+ * The *Entities methods load the same rows the way the services used to:
+ * managed instances with a dirty-checking snapshot each, in a read-write
+ * transaction for the full table. Run with the gc profiler to compare
+ * allocation per request next to the time per request:
+ *   mvn -Pjmh test-compile exec:exec -Djmh.args="ReadProjectionBenchmark -prof gc"
+ * and compare gc.alloc.rate.norm (bytes/op).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReadProjectionBenchmark {
+    @Param({"10000"})
+    int messageCount;
+
+    private ConfigurableApplicationContext context;
+    private MessageService messageService;
+    private MessageRepository messageRepository;
+    private AccountRepository accountRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate transaction;
+    private int accountCount;
+
+    @Setup
+    public void setUp() {
+        accountCount = Math.max(10, messageCount / 100);
+        // timelines off, so author reads reach the database every time
+        context = BenchmarkDatabase.start(accountCount, messageCount, "--app.timeline.capacity=0");
+        messageService = context.getBean(MessageService.class);
+        messageRepository = context.getBean(MessageRepository.class);
+        accountRepository = context.getBean(AccountRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        SpringApplication.exit(context);
+    }
+
+    @Benchmark
+    public List<Message> allMessagesEntities() {
+        return transaction.execute(status -> entityManager
+                .createQuery("select m from Message m order by m.messageId", Message.class)
+                .getResultList());
+    }
+
+    @Benchmark
+    public List<Message> allMessagesProjected() {
+        return messageService.getAllMessages();
+    }
+
+    @Benchmark
+    public List<Message> authorEntities() {
+        return entityManager
+                .createQuery("select m from Message m where m.postedBy = :postedBy"
+                        + " order by m.timePostedEpoch desc, m.messageId desc", Message.class)
+                .setParameter("postedBy", randomAuthor())
+                .getResultList();
+    }
+
+    @Benchmark
+    public List<Message> authorProjected() {
+        return messageRepository.findByPostedByOrderByTimePostedEpochDescMessageIdDesc(randomAuthor());
+    }
+
+    @Benchmark
+    public Account loginLookupEntity() {
+        return accountRepository.findByUsername(randomUsername());
+    }
+
+    @Benchmark
+    public AccountCredentials loginLookupProjected() {
+        return accountRepository.findCredentialsByUsername(randomUsername());
+    }
+
+    /*
+     * Helpers
+     */
+    private int randomAuthor() {
+        return BenchmarkDatabase.FIRST_ID + ThreadLocalRandom.current().nextInt(accountCount);
+    }
+
+    // seeded usernames are user1 to user<accountCount>
+    private String randomUsername() {
+        return "user" + (1 + ThreadLocalRandom.current().nextInt(accountCount));
+    }
+}
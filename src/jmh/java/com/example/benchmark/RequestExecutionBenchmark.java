@@ -0,0 +1,176 @@
+package com.example.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.example.util.VirtualThreads;
+
+/*
+ * HTTP throughput with platform versus virtual request threads against a slow database
+ *
+ * Each invocation sends a wave of `connections` concurrent GET /messages/{id}
+ * requests and waits for all of them. Every JDBC connection checkout first
+ * sleeps dbLatencyMillis, standing in for a remote database; the sleep happens
+ * before the pool is touched, so the request thread is what stays blocked.
+ * The requests/s counter is the number to compare.
+ *
+ * The virtual mode needs a JDK 21+ runtime, e.g. JAVA_HOME pointing at one:
+ *   mvn -Pjmh test-compile exec:exec -Djmh.args=RequestExecutionBenchmark
+ * Client and server share the process, so it needs an open-file limit above
+ * twice the connection count (ulimit -n).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+public class RequestExecutionBenchmark {
+    private static final int MESSAGE_COUNT = 10_000;
+
+    @Param({"platform", "virtual"})
+    String threads;
+
+    @Param({"10000"})
+    int connections;
+
+    @Param({"20"})
+    int dbLatencyMillis;
+
+    private ConfigurableApplicationContext context;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup
+    public void setUp() {
+        boolean virtual = "virtual".equals(threads);
+        if (virtual && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException("virtual threads need JDK 21+, running " + System.getProperty("java.version"));
+        }
+
+        context = BenchmarkDatabase.start(WebApplicationType.SERVLET,
+                builder -> builder.initializers(app -> app.getBeanFactory().addBeanPostProcessor(new SlowDatabase(dbLatencyMillis))),
+                100, MESSAGE_COUNT,
+                "--server.port=0",
+                "--app.threads.virtual=" + virtual,
+                "--server.tomcat.max-connections=" + (connections + 1000),
+                "--server.tomcat.accept-count=" + connections);
+
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port + "/messages/";
+
+        // a small fixed pool, so the client's own threads do not scale with the wave
+        clientExecutor = Executors.newFixedThreadPool(4);
+        client = HttpClient.newBuilder()
+                .executor(clientExecutor)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        SpringApplication.exit(context);
+        clientExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public void concurrentGets(RequestCounters counters) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CompletableFuture<?>[] wave = new CompletableFuture<?>[connections];
+
+        for (int i = 0; i < connections; i++) {
+            int messageId = BenchmarkDatabase.FIRST_ID + random.nextInt(MESSAGE_COUNT);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + messageId))
+                    .timeout(Duration.ofSeconds(60))
+                    .build();
+            wave[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, failure) -> failure == null && response.statusCode() == 200);
+        }
+
+        CompletableFuture.allOf(wave).join();
+        for (CompletableFuture<?> request : wave) {
+            if (Boolean.TRUE.equals(request.join())) {
+                counters.requests++;
+            } else {
+                counters.failures++;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RequestCounters {
+        public long requests;
+        public long failures;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            requests = 0;
+            failures = 0;
+        }
+    }
+
+    /*
+     * Adds a fixed delay to every connection checkout
+     */
+    private static final class SlowDatabase implements BeanPostProcessor {
+        private final long latencyMillis;
+
+        SlowDatabase(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource)) {
+                return bean;
+            }
+            return new DelegatingDataSource((DataSource) bean) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    try {
+                        Thread.sleep(latencyMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("interrupted while simulating database latency", e);
+                    }
+                    return super.getConnection();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * Turns on Spring's cache annotations. The backing store, its size and TTL
+ * come from the spring.cache.* properties.
+ */
+@Configuration
+@EnableCaching
+public class CachingConfig {
+}
@@ -0,0 +1,247 @@
+package com.example.config;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.aop.support.StaticMethodMatcher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.example.repository.AccountRepository;
+import com.example.repository.MessageRepository;
+import com.example.service.AccountService;
+import com.example.service.MessageService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Request, service and repository timers, scraped from /actuator/prometheus
+ * along with the Hikari pool (hikaricp.*), message cache (cache.*) and
+ * Hibernate statistics (hibernate.*) metrics Spring Boot adds on its own
+ *
+ *   http.server.requests{method, uri, status, outcome, exception}
+ *   app.service{service, method, exception}
+ *   app.repository{repository, method, exception}
+ *
+ * Boot's own request and repository timers are switched off in
+ * application.properties: they build tags and look their timer up on every
+ * call, which costs microseconds. These keep one timer per method or
+ * endpoint and reuse it; failures are rare enough to be looked up each
+ * time. MetricsOverheadBenchmark holds the total under 1 us per request.
+ */
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+    static final String SERVICE = "app.service";
+    static final String REPOSITORY = "app.repository";
+
+    private final ObjectProvider<MeterRegistry> registry;
+
+    public MetricsConfig(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    // static, and the registry looked up on first use, so creating the advisors early pulls in nothing else
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor messageServiceMetrics(ObjectProvider<MeterRegistry> registry) {
+        return timed(MessageService.class, new MethodTimers(registry, SERVICE, "service", "MessageService"));
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor accountServiceMetrics(ObjectProvider<MeterRegistry> registry) {
+        return timed(AccountService.class, new MethodTimers(registry, SERVICE, "service", "AccountService"));
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor messageRepositoryMetrics(ObjectProvider<MeterRegistry> registry) {
+        return timed(MessageRepository.class, new MethodTimers(registry, REPOSITORY, "repository", "MessageRepository"));
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor accountRepositoryMetrics(ObjectProvider<MeterRegistry> registry) {
+        return timed(AccountRepository.class, new MethodTimers(registry, REPOSITORY, "repository", "AccountRepository"));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptors) {
+        MeterRegistry meters = registry.getIfAvailable();
+        if (meters != null) {
+            interceptors.addInterceptor(new RequestTimers(meters));
+        }
+    }
+
+    /*
+     * Helper, every public method of the type; outermost, so cache hits and transactions are included
+     */
+    private static Advisor timed(Class<?> type, MethodTimers timers) {
+        ComposablePointcut pointcut = new ComposablePointcut(new RootClassFilter(type), new StaticMethodMatcher() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return Modifier.isPublic(method.getModifiers()) && method.getDeclaringClass() != Object.class;
+            }
+        });
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, timers);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    /*
+     * One timer per method; a returned CompletionStage is timed until it completes
+     */
+    static final class MethodTimers implements MethodInterceptor {
+        private final ObjectProvider<MeterRegistry> registry;
+        private final String name;
+        private final String typeTag;
+        private final String type;
+        private final ConcurrentMap<Method, Timer> timers = new ConcurrentHashMap<>();
+
+        MethodTimers(ObjectProvider<MeterRegistry> registry, String name, String typeTag, String type) {
+            this.registry = registry;
+            this.name = name;
+            this.typeTag = typeTag;
+            this.type = type;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Method method = invocation.getMethod();
+            long start = System.nanoTime();
+
+            Object result;
+            try {
+                result = invocation.proceed();
+            } catch (Throwable e) {
+                record(method, start, e);
+                throw e;
+            }
+
+            if (result instanceof CompletionStage) {
+                return ((CompletionStage<?>) result).whenComplete((value, e) -> record(method, start, e));
+            }
+            record(method, start, null);
+            return result;
+        }
+
+        private void record(Method method, long start, Throwable e) {
+            long elapsed = System.nanoTime() - start;
+            Timer timer = e == null ? timers.computeIfAbsent(method, m -> timer(m, "none"))
+                    : timer(method, e.getClass().getSimpleName());
+            timer.record(elapsed, TimeUnit.NANOSECONDS);
+        }
+
+        private Timer timer(Method method, String exception) {
+            return Timer.builder(name)
+                    .tag(typeTag, type)
+                    .tag("method", method.getName())
+                    .tag("exception", exception)
+                    .register(registry.getObject());
+        }
+    }
+
+    /*
+     * http.server.requests with Boot's tags, one timer per endpoint, method and status
+     *
+     * For async requests (streaming, SSE) the start of the first dispatch is
+     * kept, so the timer covers the whole response.
+     */
+    static final class RequestTimers implements HandlerInterceptor {
+        private static final String START = RequestTimers.class.getName() + ".start";
+
+        private final MeterRegistry registry;
+        private final ConcurrentMap<Key, Timer> timers = new ConcurrentHashMap<>();
+
+        RequestTimers(MeterRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            if (request.getAttribute(START) == null) {
+                request.setAttribute(START, System.nanoTime());
+            }
+            return true;
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                    Exception ex) {
+            Object start = request.getAttribute(START);
+            if (start == null) {
+                return;
+            }
+            long elapsed = System.nanoTime() - (Long) start;
+
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+
+            Timer timer = ex != null ? timer(request.getMethod(), uri, response.getStatus(), ex.getClass().getSimpleName())
+                    : timers.computeIfAbsent(new Key(request.getMethod(), uri, response.getStatus()),
+                            key -> timer(key.method, key.uri, key.status, "None"));
+            timer.record(elapsed, TimeUnit.NANOSECONDS);
+        }
+
+        private Timer timer(String method, String uri, int status, String exception) {
+            HttpStatus.Series series = HttpStatus.Series.resolve(status);
+            return Timer.builder("http.server.requests")
+                    .tag("method", method)
+                    .tag("uri", uri)
+                    .tag("status", Integer.toString(status))
+                    .tag("outcome", series == null ? "UNKNOWN" : series.name())
+                    .tag("exception", exception)
+                    .register(registry);
+        }
+
+        // the uri is the mapping's own pattern String, so its hash is already cached
+        private static final class Key {
+            final String method;
+            final String uri;
+            final int status;
+
+            Key(String method, String uri, int status) {
+                this.method = method;
+                this.uri = uri;
+                this.status = status;
+            }
+
+            @Override
+            public boolean equals(Object other) {
+                if (!(other instanceof Key)) {
+                    return false;
+                }
+                Key key = (Key) other;
+                return status == key.status && uri.equals(key.uri) && method.equals(key.method);
+            }
+
+            @Override
+            public int hashCode() {
+                return (uri.hashCode() * 31 + method.hashCode()) * 31 + status;
+            }
+        }
+    }
+}
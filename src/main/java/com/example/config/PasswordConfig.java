@@ -0,0 +1,47 @@
+package com.example.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+/*
+ * Password hashing setup
+ *
+ * Stored passwords carry their scheme as a prefix, e.g. "{bcrypt}$2a$10$...",
+ * so the scheme and work factor can change without invalidating old hashes.
+ * Rows without a prefix are legacy plaintext; they still verify and are
+ * re-hashed with the current scheme on their next successful login.
+ */
+@Configuration
+public class PasswordConfig {
+
+    @Bean
+    @SuppressWarnings("deprecation") // NoOpPasswordEncoder is only used to read legacy rows
+    public PasswordEncoder passwordEncoder(
+            @Value("${app.security.password.scheme:bcrypt}") String scheme,
+            @Value("${app.security.password.bcrypt-strength:10}") int bcryptStrength,
+            @Value("${app.security.password.pbkdf2-iterations:185000}") int pbkdf2Iterations) {
+        Pbkdf2PasswordEncoder pbkdf2 = new Pbkdf2PasswordEncoder("", pbkdf2Iterations, 256);
+        pbkdf2.setAlgorithm(Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", new BCryptPasswordEncoder(bcryptStrength));
+        encoders.put("pbkdf2", pbkdf2);
+
+        if (!encoders.containsKey(scheme)) {
+            throw new IllegalArgumentException("unknown password scheme: " + scheme);
+        }
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(scheme, encoders);
+        encoder.setDefaultPasswordEncoderForMatches(NoOpPasswordEncoder.getInstance());
+        return encoder;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * Suggests a connection pool size at startup from the core count and the measured database latency
+ *
+ * Times PROBES round trips of a trivial query on one connection, splitting
+ * them into CPU spent on this thread and time spent waiting, and applies
+ *   pool size = cores * (1 + wait / cpu)
+ * so a database that answers in-process (no waiting) gets one connection per
+ * core and a remote one proportionally more, up to MAX_SUGGESTION. The
+ * result is only logged, as a warning when the configured
+ * spring.datasource.hikari.maximum-pool-size is off by more than 2x.
+ */
+@Component
+@ConditionalOnProperty(name = "app.datasource.pool-check", havingValue = "true")
+public class PoolSizeCheck {
+    static final int WARMUP = 50;
+    static final int PROBES = 200;
+    // past this the database, not the pool, is what needs looking at
+    static final int MAX_SUGGESTION = 100;
+
+    private static final Logger log = LoggerFactory.getLogger(PoolSizeCheck.class);
+
+    private final DataSource dataSource;
+
+    public PoolSizeCheck(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void check() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!threads.isCurrentThreadCpuTimeSupported()) {
+            log.info("event=pool_size_check skipped=no_thread_cpu_time");
+            return;
+        }
+
+        long wallNanos;
+        long cpuNanos;
+        int configured;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement probe = connection.prepareStatement("select 1")) {
+            for (int i = 0; i < WARMUP; i++) {
+                probe.executeQuery().close();
+            }
+
+            long cpuStart = threads.getCurrentThreadCpuTime();
+            long wallStart = System.nanoTime();
+            for (int i = 0; i < PROBES; i++) {
+                probe.executeQuery().close();
+            }
+            wallNanos = (System.nanoTime() - wallStart) / PROBES;
+            cpuNanos = (threads.getCurrentThreadCpuTime() - cpuStart) / PROBES;
+
+            configured = dataSource.isWrapperFor(HikariDataSource.class)
+                    ? dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize() : -1;
+        } catch (SQLException e) {
+            log.warn("event=pool_size_check skipped=probe_failed", e);
+            return;
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        int suggested = suggest(cores, cpuNanos, wallNanos);
+        boolean offTarget = configured > 0 && (configured * 2 < suggested || configured > suggested * 2);
+
+        String line = "event=pool_size_check cores={} round_trip_us={} cpu_us={} suggested={} configured={}";
+        Object[] fields = {cores, wallNanos / 1000.0, cpuNanos / 1000.0, suggested, configured};
+        if (offTarget) {
+            log.warn(line, fields);
+        } else {
+            log.info(line, fields);
+        }
+    }
+
+    /*
+     * @return int cores * (1 + wait / cpu), between 2 and MAX_SUGGESTION
+     */
+    static int suggest(int cores, long cpuNanos, long wallNanos) {
+        long waitNanos = Math.max(0, wallNanos - cpuNanos);
+        double ratio = (double) waitNanos / Math.max(1, cpuNanos);
+        long suggested = Math.round(Math.ceil(cores * (1 + ratio)));
+        return (int) Math.max(2, Math.min(MAX_SUGGESTION, suggested));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+
+/*
+ * The 'reactive' profile serves the API from WebFlux on Netty over R2DBC
+ *
+ * Tomcat is on the classpath for the servlet stack and Boot would otherwise
+ * pick it for the reactive server as well; Netty's event loop is the point
+ * of this stack.
+ *
+ * The R2DBC ConnectionFactory is deliberately not a bean: Boot stops
+ * configuring the JDBC DataSource once one exists, and Flyway and the JPA
+ * services still need it. Only the DatabaseClient is exposed.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(@Value("${spring.r2dbc.url}") String url,
+                                         @Value("${spring.r2dbc.username}") String username,
+                                         @Value("${spring.r2dbc.password}") String password) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        return DatabaseClient.create(ConnectionFactories.get(options));
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/*
+ * Counts the JDBC statements each request runs
+ *
+ * The DataSource is wrapped so every connection counts the statements it
+ * prepares into the current request's count. Hibernate and JdbcTemplate
+ * prepare one statement per execution, so this is the number of queries and
+ * updates the request ran; a JDBC batch counts once. Requests over
+ * app.jdbc.statement-budget are logged, and with
+ * app.jdbc.statement-count-header (on in the dev profile) the count goes
+ * back in X-Statement-Count.
+ *
+ * Only the request's own threads are counted, plus tasks handed from a
+ * counted thread to a pool that applies the statementCountPropagation
+ * decorator: the password hasher and the account writes after it (the
+ * insert after a registration's hash, the re-hash after a login), and
+ * Boot's application task executor. Other pools are not counted.
+ */
+@Configuration
+public class StatementCountConfig implements WebMvcConfigurer {
+    public static final String HEADER = "X-Statement-Count";
+
+    private static final Logger log = LoggerFactory.getLogger(StatementCountConfig.class);
+    private static final ThreadLocal<Count> current = new ThreadLocal<>();
+    private static final String COUNT = StatementCountConfig.class.getName() + ".count";
+
+    private final int budget;
+
+    public StatementCountConfig(@Value("${app.jdbc.statement-budget:10}") int budget) {
+        this.budget = budget;
+    }
+
+    // static, so the DataSource is wrapped before anything else gets hold of it
+    @Bean
+    public static BeanPostProcessor statementCountingDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof CountingDataSource)) {
+                    return new CountingDataSource((DataSource) bean);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptors) {
+        interceptors.addInterceptor(new Budget(budget));
+    }
+
+    /*
+     * Runs each task under the count of the thread that submitted it, if any
+     *
+     * Chains across pools: a continuation submitted by a decorated hasher
+     * task still counts into the request that started the hash.
+     */
+    @Bean
+    public TaskDecorator statementCountPropagation() {
+        return task -> {
+            Count count = current.get();
+            if (count == null) {
+                return task;
+            }
+            return () -> {
+                current.set(count);
+                try {
+                    task.run();
+                } finally {
+                    current.remove();
+                }
+            };
+        };
+    }
+
+    // touched by one thread at a time: an async continuation runs before the
+    // result is dispatched, and the dispatch picks it up from the request
+    static final class Count {
+        int statements;
+    }
+
+    /*
+     * Starts the count for each request and logs the ones that go over the budget
+     */
+    static final class Budget implements AsyncHandlerInterceptor {
+        private final int budget;
+
+        Budget(int budget) {
+            this.budget = budget;
+        }
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            Count count = (Count) request.getAttribute(COUNT);
+            if (count == null) {
+                count = new Count();
+                request.setAttribute(COUNT, count);
+            }
+            current.set(count);
+            return true;
+        }
+
+        @Override
+        public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                                   Object handler) {
+            current.remove();
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                    Exception ex) {
+            current.remove();
+
+            Count count = (Count) request.getAttribute(COUNT);
+            if (count != null && count.statements > budget) {
+                log.warn("event=statement_budget_exceeded method={} uri={} statements={} budget={}", request.getMethod(),
+                        request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE), count.statements, budget);
+            }
+        }
+    }
+
+    /*
+     * Puts the count so far in X-Statement-Count, just before the body is written
+     */
+    @ControllerAdvice
+    static class CountHeader implements ResponseBodyAdvice<Object> {
+        private final boolean enabled;
+
+        CountHeader(@Value("${app.jdbc.statement-count-header:false}") boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        @Override
+        public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+            return enabled;
+        }
+
+        @Override
+        public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                      Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                      ServerHttpRequest request, ServerHttpResponse response) {
+            Count count = current.get();
+            if (count != null) {
+                response.getHeaders().set(HEADER, Integer.toString(count.statements));
+            }
+            return body;
+        }
+    }
+
+    /*
+     * Hands out connections that count every statement they prepare or create
+     *
+     * A DelegatingDataSource, so the pool metrics and health checks still find Hikari behind it.
+     */
+    static final class CountingDataSource extends DelegatingDataSource {
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(super.getConnection(username, password));
+        }
+
+        private static Connection counting(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(CountingDataSource.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "prepareStatement":
+                            case "prepareCall":
+                            case "createStatement":
+                                Count count = current.get();
+                                if (count != null) {
+                                    count.statements++;
+                                }
+                                break;
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            default:
+                                break;
+                        }
+
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
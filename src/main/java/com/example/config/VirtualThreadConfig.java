@@ -0,0 +1,56 @@
+package com.example.config;
+
+import java.util.concurrent.ExecutorService;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.example.util.VirtualThreads;
+
+/*
+ * app.threads.virtual=true runs every request on its own virtual thread
+ *
+ * Tomcat's worker pool is replaced, so server.tomcat.threads.max no longer
+ * caps concurrency; server.tomcat.max-connections and the JDBC pool do.
+ * Controller and service calls run on the request thread and so block a
+ * virtual thread instead of a pooled one. Password hashing stays on its own
+ * bounded platform pool, being CPU work. Needs a JDK 21+ runtime.
+ *
+ * H2 and Hibernate still block inside synchronized blocks, which pins the
+ * carrier thread on JDK 21; -Djdk.tracePinnedThreads=short shows where.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.threads.virtual", havingValue = "true")
+public class VirtualThreadConfig implements WebMvcConfigurer {
+    private final ExecutorService requestExecutor;
+
+    public VirtualThreadConfig() {
+        this.requestExecutor = VirtualThreads.newThreadPerTaskExecutor("request-")
+                .orElseThrow(() -> new IllegalStateException(
+                        "app.threads.virtual=true needs a JDK with virtual threads (21+), running "
+                                + System.getProperty("java.version")));
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(requestExecutor);
+    }
+
+    // async results (StreamingResponseBody, CompletableFuture dispatch) run there too
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(requestExecutor));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        requestExecutor.shutdown();
+    }
+}
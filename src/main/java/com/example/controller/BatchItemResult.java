@@ -0,0 +1,35 @@
+package com.example.controller;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/*
+ * Outcome of one element of a POST /messages/batch request
+ *
+ * index is the element's position in the request, status mirrors the code
+ * the single-message endpoint would have answered with.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+    private final int index;
+    private final int status;
+    private final Message message;
+
+    public BatchItemResult(int index, int status, Message message) {
+        this.index = index;
+        this.status = status;
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.controller;
+
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.exception.InvalidSessionException;
+import com.example.service.SessionTokenStore;
+
+/*
+ * Turns an Authorization header into the logged in account, for both web stacks
+ */
+@Component
+class CallerResolver {
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final SessionTokenStore sessionTokens;
+    private final boolean sessionRequired;
+
+    @Autowired
+    CallerResolver(SessionTokenStore sessionTokens, @Value("${app.auth.required:false}") boolean sessionRequired) {
+        this.sessionTokens = sessionTokens;
+        this.sessionRequired = sessionRequired;
+    }
+
+    /*
+     * Resolve the logged in account from an Authorization header
+     * @param authorization the raw header, may be null
+     * @return Optional the caller's account id, empty if no token was sent
+     * throws InvalidSessionException if a token was sent but is not valid,
+     * or none was sent while app.auth.required is on
+     */
+    Optional<Integer> callerFrom(String authorization) {
+        String token = bearerToken(authorization);
+
+        if (token == null) {
+            if (sessionRequired) {
+                throw new InvalidSessionException("session token required");
+            }
+            return Optional.empty();
+        }
+
+        Optional<Integer> caller = sessionTokens.resolve(token);
+
+        if (caller.isEmpty()) {
+            throw new InvalidSessionException("session token unknown or expired");
+        }
+        return caller;
+    }
+
+    /*
+     * Issue a session token for a freshly verified account
+     */
+    String issue(Integer accountId) {
+        return sessionTokens.issue(accountId);
+    }
+
+    /*
+     * Revoke the token in an Authorization header, if any
+     */
+    void revoke(String authorization) {
+        sessionTokens.revoke(bearerToken(authorization));
+    }
+
+    /*
+     * Helper
+     */
+    private static String bearerToken(String authorization) {
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return null;
+        }
+        return authorization.substring(BEARER_PREFIX.length()).trim();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.controller;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.MediaType;
+
+import com.example.service.MessageEvent;
+import com.example.service.MessageFeed;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/*
+ * One GET /messages/stream response, written with non-blocking servlet I/O
+ *
+ * The feed's dispatch threads are shared by every subscriber, so a send
+ * must never wait on a client. An event is only written while the
+ * connection can take it; otherwise the sink turns it down, the feed keeps
+ * it buffered (coalescing, and eventually RESYNC, for a client that stays
+ * behind), and the container's onWritePossible resumes the subscription.
+ */
+final class EventStream implements MessageFeed.Sink, WriteListener, AsyncListener {
+    private static final byte[] SUBSCRIBED = ":subscribed\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final AsyncContext async;
+    private final ServletOutputStream out;
+    private final ObjectWriter eventWriter;
+    private MessageFeed.Subscription subscription;
+    private boolean subscribed;
+    private boolean closed;
+
+    private EventStream(AsyncContext async, ServletOutputStream out, ObjectWriter eventWriter) {
+        this.async = async;
+        this.out = out;
+        this.eventWriter = eventWriter;
+    }
+
+    /*
+     * Take the request async and start delivering the feed to it
+     * @param postedBy only this author's events, null for all
+     * @param timeoutMillis the response ends after this long and the client reconnects
+     */
+    static void open(HttpServletRequest request, HttpServletResponse response, MessageFeed feed, Integer postedBy,
+                     ObjectWriter eventWriter, long timeoutMillis) throws IOException {
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        AsyncContext async = request.startAsync();
+        async.setTimeout(timeoutMillis);
+
+        EventStream stream = new EventStream(async, response.getOutputStream(), eventWriter);
+        async.addListener(stream);
+        // subscribed before anything is written, so no event after ':subscribed' is missed
+        stream.subscription = feed.subscribe(postedBy, stream);
+        stream.out.setWriteListener(stream);
+    }
+
+    @Override
+    public boolean offer(MessageEvent event) throws IOException {
+        byte[] frame = ("event:" + event.getType().name().toLowerCase() + "\ndata:"
+                + eventWriter.writeValueAsString(event) + "\n\n").getBytes(StandardCharsets.UTF_8);
+
+        synchronized (this) {
+            // false also registers for onWritePossible
+            if (!subscribed || !out.isReady()) {
+                return false;
+            }
+            try {
+                out.write(frame);
+                if (out.isReady()) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                close(); // the client is gone; throwing cancels the subscription too
+                throw e;
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+        synchronized (this) {
+            if (!subscribed) {
+                out.write(SUBSCRIBED); // commits the response, so the client knows it is subscribed
+                subscribed = true;
+            }
+            if (out.isReady()) {
+                out.flush();
+            }
+        }
+        subscription.resume();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        close();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        synchronized (this) {
+            closed = true;
+        }
+        subscription.cancel();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+
+    private void close() {
+        subscription.cancel();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        async.complete();
+    }
+}
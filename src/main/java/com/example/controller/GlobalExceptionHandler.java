@@ -1,28 +1,87 @@
 package com.example.controller;
 
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ServerWebInputException;
+
+import com.example.exception.InvalidSessionException;
+import com.example.exception.ServiceOverloadedException;
+import com.example.exception.UsernameTakenException;
+import com.example.util.ExceptionLog;
+import com.fasterxml.jackson.core.JsonProcessingException;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
+    // one stack trace per kind of failure and window, so an error storm cannot flood the log
+    private final ExceptionLog exceptions;
+
+    public GlobalExceptionHandler(@Value("${app.logging.exception-window-seconds:10}") long windowSeconds,
+                                  @Value("${app.logging.exception-kinds:1000}") int maxKinds) {
+        this.exceptions = new ExceptionLog(LoggerFactory.getLogger(GlobalExceptionHandler.class),
+                windowSeconds, TimeUnit.SECONDS, maxKinds);
+    }
 
     @ExceptionHandler(DataAccessException.class)
     public ResponseEntity<String> handleException(DataAccessException ex) {
         String message = "Oops! There's something wrong on the backend!";
 
-        ex.printStackTrace();
+        exceptions.error("data_access_failed", ex);
 
         return new ResponseEntity<>(message, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    @ExceptionHandler(UsernameTakenException.class)
+    public ResponseEntity<String> handleException(UsernameTakenException ex) {
+        String message = "Username is already taken.";
+
+        return new ResponseEntity<>(message, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(InvalidSessionException.class)
+    public ResponseEntity<String> handleException(InvalidSessionException ex) {
+        String message = "Please log in again.";
+
+        return new ResponseEntity<>(message, HttpStatus.UNAUTHORIZED);
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<String> handleException(ServiceOverloadedException ex) {
+        String message = "Server is busy, try again shortly.";
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(message);
+    }
+
+    // bodies parsed by hand (e.g. /messages/batch) bypass Spring's own 400 handling
+    @ExceptionHandler(JsonProcessingException.class)
+    public ResponseEntity<String> handleException(JsonProcessingException ex) {
+        String message = "Malformed JSON in request body.";
+
+        return new ResponseEntity<>(message, HttpStatus.BAD_REQUEST);
+    }
+
+    // the reactive stack's equivalent, e.g. a truncated /messages/batch body
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<String> handleException(ServerWebInputException ex) {
+        String message = "Malformed request.";
+
+        return new ResponseEntity<>(message, HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleException(Exception ex) {
         String message = "Some general error occurred.";
 
-        ex.printStackTrace();
+        exceptions.error("unhandled_exception", ex);
 
         return new ResponseEntity<>(message, HttpStatus.INTERNAL_SERVER_ERROR);
     }
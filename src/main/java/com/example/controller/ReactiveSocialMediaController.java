@@ -0,0 +1,346 @@
+package com.example.controller;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.example.service.MessageEvent;
+import com.example.service.MessageFeed;
+import com.example.service.MessageService;
+import com.example.service.MessageVersions;
+import com.example.service.ReactiveAccountService;
+import com.example.service.ReactiveMessageService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+ * The API of SocialMediaController on WebFlux, active with the 'reactive' profile
+ *
+ * Status codes and bodies match the servlet stack; see SocialMediaController
+ * for the contract of each endpoint. Lists are returned as a Flux, so rows
+ * are read from the database as the client consumes them.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveSocialMediaController {
+    private final ReactiveMessageService messageService;
+    private final ReactiveAccountService accountService;
+    private final CallerResolver callers;
+    private final MessageFeed messageFeed;
+    private final MessageVersions messageVersions;
+
+    @Autowired
+    ReactiveSocialMediaController(ReactiveAccountService accountService, ReactiveMessageService messageService,
+                                  CallerResolver callers, MessageFeed messageFeed, MessageVersions messageVersions) {
+        this.accountService = accountService;
+        this.messageService = messageService;
+        this.callers = callers;
+        this.messageFeed = messageFeed;
+        this.messageVersions = messageVersions;
+    }
+
+    // ACCOUNT SERVICES -------------------------------
+
+    @PostMapping("/register")
+    public Mono<ResponseEntity<Account>> registerUser(@RequestBody Account newAccount) {
+        if (newAccount == null || newAccount.getUsername() == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        // a taken username surfaces as UsernameTakenException, mapped to 409
+        return accountService.registerNewAccountFor(newAccount)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.badRequest().build());
+    }
+
+    @GetMapping("/accounts/available")
+    public Mono<ResponseEntity<Boolean>> isUsernameAvailable(@RequestParam String username) {
+        if (username.isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        return accountService.isUsernameAvailable(username).map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/login")
+    public Mono<ResponseEntity<Account>> loginUser(@RequestBody Account returningAccount) {
+        if (returningAccount == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        return accountService.verifyAccountExistsFor(returningAccount)
+                .map(account -> ResponseEntity.ok()
+                        .header(SocialMediaController.SESSION_TOKEN_HEADER, callers.issue(account.getAccountId()))
+                        .body(account))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logoutUser(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        callers.revoke(authorization);
+        return ResponseEntity.ok().build();
+    }
+
+    // MESSAGE SERVICES -------------------------------
+
+    @PostMapping("/messages")
+    public Mono<ResponseEntity<Message>> createMessage(@RequestBody Message newMessage,
+                                                       @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        if (newMessage == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        Optional<Integer> caller = callers.callerFrom(authorization);
+        Mono<Boolean> authorKnown;
+
+        if (caller.isPresent()) {
+            if (newMessage.getPostedBy() == null) {
+                newMessage.setPostedBy(caller.get());
+            } else if (!newMessage.getPostedBy().equals(caller.get())) {
+                return Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN).build());
+            }
+            authorKnown = Mono.just(true);
+        } else {
+            authorKnown = accountService.accountExists(newMessage.getPostedBy());
+        }
+
+        return authorKnown
+                .flatMap(known -> known ? messageService.createMessage(newMessage) : Mono.empty())
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.badRequest().build());
+    }
+
+    /*
+     * The body is decoded incrementally, from a JSON array or NDJSON, and
+     * committed in chunks of SocialMediaController.BATCH_CHUNK_SIZE.
+     */
+    @PostMapping(value = "/messages/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<List<BatchItemResult>>> createMessages(@RequestBody Flux<Message> body,
+                                                                      @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        Optional<Integer> caller = callers.callerFrom(authorization);
+        List<BatchItemResult> results = new ArrayList<>();
+
+        return body.buffer(SocialMediaController.BATCH_CHUNK_SIZE)
+                .concatMap(chunk -> createChunk(chunk, caller, results))
+                .then(Mono.fromSupplier(() -> ResponseEntity.ok(results)));
+    }
+
+    /*
+     * Helper, persists one chunk of a batch and appends its results
+     */
+    private Mono<Void> createChunk(List<Message> chunk, Optional<Integer> caller, List<BatchItemResult> results) {
+        Set<Integer> forbidden = new HashSet<>();
+        Mono<Set<Integer>> knownAuthors;
+
+        if (caller.isPresent()) {
+            knownAuthors = Mono.just(Set.of(caller.get()));
+            for (int i = 0; i < chunk.size(); i++) {
+                Message message = chunk.get(i);
+                if (message.getPostedBy() == null) {
+                    message.setPostedBy(caller.get());
+                } else if (!message.getPostedBy().equals(caller.get())) {
+                    forbidden.add(i);
+                }
+            }
+        } else {
+            Set<Integer> authorIds = new HashSet<>();
+            for (Message message : chunk) {
+                if (message.getPostedBy() != null) {
+                    authorIds.add(message.getPostedBy());
+                }
+            }
+            knownAuthors = accountService.findExistingAccountIds(authorIds);
+        }
+
+        return knownAuthors
+                .flatMap(authors -> messageService.createMessages(chunk, authors))
+                .doOnNext(created -> {
+                    for (int i = 0; i < created.size(); i++) {
+                        Optional<Message> message = created.get(i);
+                        int index = results.size();
+                        if (message.isPresent()) {
+                            results.add(new BatchItemResult(index, HttpStatus.OK.value(), message.get()));
+                        } else if (forbidden.contains(i)) {
+                            results.add(new BatchItemResult(index, HttpStatus.FORBIDDEN.value(), null));
+                        } else {
+                            results.add(new BatchItemResult(index, HttpStatus.BAD_REQUEST.value(), null));
+                        }
+                    }
+                })
+                .then();
+    }
+
+    @GetMapping("/messages")
+    public ResponseEntity<Flux<Message>> getAllMessages(@RequestParam(required = false) Integer after,
+                                                        @RequestParam(required = false) Integer limit,
+                                                        ServerWebExchange exchange) {
+        int pageSize = limit == null ? MessageService.DEFAULT_PAGE_SIZE : limit;
+
+        if (limit != null && (pageSize < 1 || pageSize > MessageService.MAX_PAGE_SIZE)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (exchange.checkNotModified(messageVersions.allMessagesTag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(messageService.getAllMessages());
+        }
+
+        return ResponseEntity.ok(messageService.getMessagesAfter(after == null ? 0 : after, pageSize));
+    }
+
+    // one JSON message per line, written as rows arrive and only as fast as the client reads
+    @GetMapping(value = "/messages", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Message> streamAllMessages() {
+        return messageService.getAllMessages();
+    }
+
+    @GetMapping("/messages/search")
+    public Mono<ResponseEntity<List<Message>>> searchMessages(@RequestParam(required = false) String q,
+                                                              @RequestParam(defaultValue = "0") int offset,
+                                                              @RequestParam(defaultValue = "" + MessageService.DEFAULT_PAGE_SIZE) int limit) {
+        if (!SocialMediaController.isValidSearch(q, offset, limit)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return messageService.searchMessages(q, offset, limit).map(ResponseEntity::ok);
+    }
+
+    // events are only handed over while the client has demand; meanwhile the feed buffers and coalesces
+    @GetMapping(value = "/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<MessageEvent>> streamMessageEvents(@RequestParam(required = false) Integer postedBy) {
+        Flux<ServerSentEvent<MessageEvent>> events = Flux.create(sink -> {
+            MessageFeed.Subscription subscription = messageFeed.subscribe(postedBy, event -> {
+                if (sink.isCancelled()) {
+                    throw new IllegalStateException("subscriber went away");
+                }
+                if (sink.requestedFromDownstream() < 1) {
+                    return false;
+                }
+                sink.next(ServerSentEvent.builder(event).event(event.getType().name().toLowerCase()).build());
+                return true;
+            });
+            sink.onRequest(demand -> subscription.resume());
+            sink.onDispose(subscription::cancel);
+        });
+
+        return events.startWith(ServerSentEvent.<MessageEvent>builder().comment("subscribed").build());
+    }
+
+    @GetMapping("/messages/{messageId}")
+    public Mono<ResponseEntity<Message>> getMessageById(@PathVariable Integer messageId, ServerWebExchange exchange) {
+        if (exchange.checkNotModified(messageVersions.messageTag(messageId))) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+        }
+
+        return messageService.getMessageById(messageId)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.ok().build());
+    }
+
+    @PatchMapping("/messages/{messageId}")
+    public Mono<ResponseEntity<Integer>> updateMessage(@PathVariable Integer messageId, @RequestBody Message modifiedMessage,
+                                                       @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        Optional<Integer> caller = callers.callerFrom(authorization);
+        modifiedMessage.setMessageId(messageId);
+
+        return messageService.updateMessage(modifiedMessage, caller.orElse(null))
+                .map(updatedRows -> updatedRows == 0
+                        ? ResponseEntity.badRequest().<Integer>build()
+                        : ResponseEntity.ok(updatedRows));
+    }
+
+    @DeleteMapping("/messages/{messageId}")
+    public Mono<ResponseEntity<Integer>> deleteMessage(@PathVariable Integer messageId,
+                                                       @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        Optional<Integer> caller = callers.callerFrom(authorization);
+
+        return messageService.deleteMessageById(messageId, caller.orElse(null))
+                .map(deletedRows -> deletedRows < 1
+                        ? ResponseEntity.ok().<Integer>build()
+                        : ResponseEntity.ok(deletedRows));
+    }
+
+    @GetMapping(value = "/accounts/{accountId}/messages", params = {"!before", "!limit"})
+    public ResponseEntity<Flux<Message>> getMessagesFromUserId(@PathVariable Integer accountId, ServerWebExchange exchange) {
+        if (exchange.checkNotModified(messageVersions.authorTag(accountId))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        return ResponseEntity.ok(messageService.getMessagesFromUserId(accountId));
+    }
+
+    // same cursor, limit and Link header as the servlet stack's page
+    @GetMapping("/accounts/{accountId}/messages")
+    public Mono<ResponseEntity<List<Message>>> getMessagesFromUserIdPage(@PathVariable Integer accountId,
+                                                                       @RequestParam(required = false) String before,
+                                                                       @RequestParam(required = false) Integer limit,
+                                                                       ServerWebExchange exchange) {
+        Long beforeTime = Long.MAX_VALUE;
+        int beforeMessageId = Integer.MAX_VALUE;
+
+        if (before != null) {
+            int separator = before.indexOf(':');
+            try {
+                String time = before.substring(0, Math.max(separator, 0));
+                beforeTime = SocialMediaController.NO_TIME_CURSOR.equals(time) ? null : Long.valueOf(time);
+                beforeMessageId = Integer.parseInt(before.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                return Mono.just(ResponseEntity.badRequest().build());
+            }
+        }
+
+        int pageSize = limit == null ? MessageService.DEFAULT_PAGE_SIZE : limit;
+
+        if (limit != null && (pageSize < 1 || pageSize > MessageService.MAX_PAGE_SIZE)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        if (exchange.checkNotModified(messageVersions.authorTag(accountId))) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+        }
+
+        return messageService.getMessagesFromUserIdBefore(accountId, beforeTime, beforeMessageId, pageSize)
+                .collectList()
+                .map(page -> {
+                    if (page.size() < pageSize) {
+                        return ResponseEntity.ok(page);
+                    }
+
+                    Message last = page.get(page.size() - 1);
+                    String next = UriComponentsBuilder.fromUri(exchange.getRequest().getURI())
+                            .replaceQueryParam("before", last.getTimePostedEpoch() + ":" + last.getMessageId())
+                            .replaceQueryParam("limit", pageSize)
+                            .toUriString();
+                    return ResponseEntity.ok()
+                            .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                            .body(page);
+                });
+    }
+}
@@ -1,10 +1,23 @@
 package com.example.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,23 +25,65 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.example.entity.Account;
 import com.example.entity.Message;
+import com.example.repository.MessageRows;
 import com.example.service.AccountService;
+import com.example.service.MessageEvent;
+import com.example.service.MessageFeed;
+import com.example.service.MessageSearch;
 import com.example.service.MessageService;
+import com.example.service.MessageVersions;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 
+// the servlet stack; the 'reactive' profile serves the same API from ReactiveSocialMediaController
 @RestController
+@Profile("!reactive")
 public class SocialMediaController {
+    public static final String SESSION_TOKEN_HEADER = "X-Session-Token";
+
+    static final int BATCH_CHUNK_SIZE = 1000;
+    // the time half of a page cursor whose message has no time, as the Link header writes it
+    static final String NO_TIME_CURSOR = "null";
+
     private final MessageService messageService;
     private final AccountService accountService;
+    private final CallerResolver callers;
+    private final MessageFeed messageFeed;
+    private final MessageVersions messageVersions;
+    private final long feedTimeoutMillis;
+    private final ObjectReader messageReader;
+    private final ObjectWriter messageWriter;
+    private final ObjectWriter eventWriter;
    
     @Autowired
-    SocialMediaController(AccountService accountService, MessageService messageService) {
+    SocialMediaController(AccountService accountService, MessageService messageService,
+                          CallerResolver callers, MessageFeed messageFeed, MessageVersions messageVersions,
+                          ObjectMapper objectMapper,
+                          @Value("${app.feed.timeout-seconds:1800}") long feedTimeoutSeconds) {
        this.accountService = accountService;
        this.messageService = messageService;
+       this.callers = callers;
+       this.messageFeed = messageFeed;
+       this.messageVersions = messageVersions;
+       this.feedTimeoutMillis = feedTimeoutSeconds * 1000;
+       this.messageReader = objectMapper.readerFor(Message.class);
+       this.messageWriter = objectMapper.writerFor(Message.class)
+               .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+       this.eventWriter = objectMapper.writerFor(MessageEvent.class);
     }
 
     // ACCOUNT SERVICES -------------------------------
@@ -39,26 +94,41 @@ public class SocialMediaController {
      * @return Account the confirmed account credentials if service rules met, 200
      * 409 if username taken
      * 400 if account registration fails
+     * 503 if password hashing is saturated
+     *
+     * The request thread is released while the password is hashed and stored.
      */
     @PostMapping("/register")
-    public ResponseEntity<Account> registerUser(@RequestBody Account newAccount) {
+    public CompletableFuture<ResponseEntity<Account>> registerUser(@RequestBody Account newAccount) {
         if (newAccount == null || newAccount.getUsername() == null) {
-            return ResponseEntity.badRequest().build();
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
         }
 
-        Optional<Account> accountWithTakenUsername = accountService.findAccountByUsername(newAccount.getUsername());
-
-        if (accountWithTakenUsername.isPresent()) {
-            return ResponseEntity.status(HttpStatus.CONFLICT).build();
-        }
+        // a taken username surfaces as UsernameTakenException, mapped to 409
+        return accountService.registerNewAccountFor(newAccount).thenApply(registeredNewAccount -> {
+            if (registeredNewAccount.isEmpty()) { // some failure
+                return ResponseEntity.badRequest().build();
+            }
 
-        Optional<Account> registeredNewAccount = accountService.registerNewAccountFor(newAccount);
+            return ResponseEntity.ok(registeredNewAccount.get());
+        });
+    }
 
-        if (registeredNewAccount.isEmpty()) { // some failure
+    /*
+     * Username availability check
+     * @param username the username to check
+     * @return Boolean true if the username can be registered, 200
+     * 400 if username is blank
+     *
+     * Advisory only: registration can still fail with 409 if someone else wins the race.
+     */
+    @GetMapping("/accounts/available")
+    public ResponseEntity<Boolean> isUsernameAvailable(@RequestParam String username) {
+        if (username.isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
 
-        return ResponseEntity.ok(registeredNewAccount.get());
+        return ResponseEntity.ok(accountService.isUsernameAvailable(username));
     }
 
     /*
@@ -67,20 +137,39 @@ public class SocialMediaController {
      * @return Account with credentials confirming login if account already registered, 200
      * 401 if login fails
      * 400 if credentials missing
+     * 503 if password checks are saturated
+     *
+     * The request thread is released while the password hash is checked.
+     * A session token is returned in the X-Session-Token header; send it back
+     * as 'Authorization: Bearer <token>' on message writes.
      */
     @PostMapping("/login")
-    public ResponseEntity<Account> loginUser(@RequestBody Account returningAccount) {
+    public CompletableFuture<ResponseEntity<Account>> loginUser(@RequestBody Account returningAccount) {
         if (returningAccount == null) {
-            return ResponseEntity.badRequest().build();
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
         }
         
-        Optional<Account> verifiedAccount = accountService.verifyAccountExistsFor(returningAccount);
+        return accountService.verifyAccountExistsFor(returningAccount).thenApply(verifiedAccount -> {
+            if (verifiedAccount.isEmpty()) { // some failure
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
 
-        if (verifiedAccount.isEmpty()) { // some failure
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        }
+            Account account = verifiedAccount.get();
+            return ResponseEntity.ok()
+                    .header(SESSION_TOKEN_HEADER, callers.issue(account.getAccountId()))
+                    .body(account);
+        });
+    }
 
-        return ResponseEntity.ok(verifiedAccount.get());
+    /*
+     * Logout controller
+     * @param authorization the 'Bearer <token>' header issued at login
+     * @return 200 always
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logoutUser(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        callers.revoke(authorization);
+        return ResponseEntity.ok().build();
     }
 
     // MESSAGE SERVICES -------------------------------
@@ -91,19 +180,32 @@ public class SocialMediaController {
      * @return Message the message details if service rules met, 200
      * 400 if message details or JSON is missing
      * 400 if postedBy is missing
+     * 401 if the session token is unknown or expired
+     * 403 if postedBy is not the logged in account
+     *
+     * With a session token postedBy defaults to the caller, and no account
+     * lookup is needed.
      */
     @PostMapping("/messages")
-    public ResponseEntity<Message> createMessage(@RequestBody Message newMessage) {
+    public ResponseEntity<Message> createMessage(@RequestBody Message newMessage,
+                                                 @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
         if (newMessage == null) {
             return ResponseEntity.badRequest().build();
         }
 
-        // check to see if account is already in data store
-        Integer id = newMessage.getPostedBy();
-        Optional<Account> postedBy = accountService.findAccountById(id);
+        Optional<Integer> caller = callers.callerFrom(authorization);
 
-        if (postedBy.isEmpty()) {
-            return ResponseEntity.badRequest().build();
+        if (caller.isPresent()) {
+            if (newMessage.getPostedBy() == null) {
+                newMessage.setPostedBy(caller.get());
+            } else if (!newMessage.getPostedBy().equals(caller.get())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+        } else {
+            // check to see if account is already in data store
+            if (!accountService.accountExists(newMessage.getPostedBy())) {
+                return ResponseEntity.badRequest().build();
+            }
         }
 
         // add message to data store
@@ -116,13 +218,207 @@ public class SocialMediaController {
         return ResponseEntity.ok(addedMessage.get());
     }
 
+    /*
+     * Create many messages in one request
+     * @param body a JSON array of messages, or one message per line (NDJSON)
+     * @return List<BatchItemResult> one result per message, in request order, 200
+     * 400 per item if the message text or postedBy is invalid
+     * 403 per item if postedBy is not the logged in account
+     * 401 if the session token is unknown or expired
+     *
+     * The body is read incrementally and committed in chunks of BATCH_CHUNK_SIZE,
+     * each validating its authors with one query and inserting with JDBC batching.
+     * With a session token every message is posted as the caller and no query is needed.
+     */
+    @PostMapping(value = "/messages/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<List<BatchItemResult>> createMessages(InputStream body,
+                                                                @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) throws IOException {
+        Optional<Integer> caller = callers.callerFrom(authorization);
+        List<BatchItemResult> results = new ArrayList<>();
+        List<Message> chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+
+        try (MappingIterator<Message> messages = messageReader.readValues(body)) {
+            while (messages.hasNextValue()) {
+                chunk.add(messages.nextValue());
+                if (chunk.size() == BATCH_CHUNK_SIZE) {
+                    createChunk(chunk, caller, results);
+                    chunk.clear();
+                }
+            }
+        }
+        createChunk(chunk, caller, results);
+
+        return ResponseEntity.ok(results);
+    }
+
+    /*
+     * Helper, persists one chunk of a batch and appends its results
+     */
+    private void createChunk(List<Message> chunk, Optional<Integer> caller, List<BatchItemResult> results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        Set<Integer> knownAuthors;
+        Set<Integer> forbidden = new HashSet<>();
+
+        if (caller.isPresent()) {
+            knownAuthors = Set.of(caller.get());
+            for (int i = 0; i < chunk.size(); i++) {
+                Message message = chunk.get(i);
+                if (message != null && message.getPostedBy() == null) {
+                    message.setPostedBy(caller.get());
+                } else if (message != null && !message.getPostedBy().equals(caller.get())) {
+                    forbidden.add(i);
+                }
+            }
+        } else {
+            Set<Integer> authorIds = new HashSet<>();
+            for (Message message : chunk) {
+                if (message != null && message.getPostedBy() != null) {
+                    authorIds.add(message.getPostedBy());
+                }
+            }
+            knownAuthors = accountService.findExistingAccountIds(authorIds);
+        }
+
+        List<Optional<Message>> created = messageService.createMessages(chunk, knownAuthors);
+
+        for (int i = 0; i < created.size(); i++) {
+            Optional<Message> message = created.get(i);
+            int index = results.size();
+            if (message.isPresent()) {
+                results.add(new BatchItemResult(index, HttpStatus.OK.value(), message.get()));
+            } else if (forbidden.contains(i)) {
+                results.add(new BatchItemResult(index, HttpStatus.FORBIDDEN.value(), null));
+            } else {
+                results.add(new BatchItemResult(index, HttpStatus.BAD_REQUEST.value(), null));
+            }
+        }
+    }
+
     /*
      * Return all messages in data store
-     * @return List<Message> all the messages, 200 always
+     * @return a JSON array of the messages, 200
+     * 304 if If-None-Match holds the current ETag
+     *
+     * Rows are written as they come off the database cursor, without
+     * entities, so the table is never held in memory. Any message write
+     * changes the ETag.
+     */
+    @GetMapping(value = "/messages", params = {"!after", "!limit"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getAllMessages(WebRequest request) {
+        // tag taken before the read, so it can only ever be older than the body
+        if (request.checkNotModified(messageVersions.allMessagesTag())) {
+            return null;
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = messageWriter.getFactory().createGenerator(outputStream);
+            generator.writeStartArray();
+            messageService.forEachMessageRow(row -> writeMessage(generator, row));
+            generator.writeEndArray();
+            generator.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /*
+     * Return one page of the messages in data store
+     * @param after optional cursor, the last message id already seen
+     * @param limit optional page size, defaults to 100
+     * @return List<Message> the messages, 200
+     * 304 if If-None-Match holds the current ETag
+     * 400 if limit is out of range
+     *
+     * Pages are ordered by message id; pass the last id of a page as
+     * 'after' to get the next one. Any message write changes the ETag.
      */
     @GetMapping("/messages")
-    public ResponseEntity<List<Message>> getAllMessages() {
-        return ResponseEntity.ok(messageService.getAllMessages());
+    public ResponseEntity<List<Message>> getMessagesPage(@RequestParam(required = false) Integer after,
+                                                        @RequestParam(required = false) Integer limit,
+                                                        WebRequest request) {
+        int pageSize = limit == null ? MessageService.DEFAULT_PAGE_SIZE : limit;
+
+        if (limit != null && (pageSize < 1 || pageSize > MessageService.MAX_PAGE_SIZE)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // tag taken before the read, so it can only ever be older than the body
+        if (request.checkNotModified(messageVersions.allMessagesTag())) {
+            return null;
+        }
+
+        return ResponseEntity.ok(messageService.getMessagesAfter(after == null ? 0 : after, pageSize));
+    }
+
+    /*
+     * Stream all messages in data store as newline-delimited JSON
+     * @return one JSON message per line, 200 always
+     *
+     * Selected with 'Accept: application/x-ndjson'. Rows are written as they
+     * come off the database cursor, so the table is never held in memory.
+     */
+    @GetMapping(value = "/messages", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllMessages() {
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = messageWriter.getFactory().createGenerator(outputStream);
+            generator.setRootValueSeparator(null);
+
+            messageService.forEachMessageRow(row -> {
+                writeMessage(generator, row);
+                generator.writeRaw('\n');
+            });
+
+            generator.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /*
+     * Full-text search over message text
+     * @param q the words to look for; all must match unless joined with |,
+     *          "quotes" match a phrase, -word excludes and word* matches a prefix
+     * @param offset optional, the number of matches to skip
+     * @param limit optional page size, defaults to 100
+     * @return List<Message> the matching messages, best match first, 200
+     * 400 if q is blank or longer than a message, or the page is out of range
+     *
+     * Results trail writes by up to app.search.max-stale-millis.
+     */
+    @GetMapping("/messages/search")
+    public ResponseEntity<List<Message>> searchMessages(@RequestParam(required = false) String q,
+                                                        @RequestParam(defaultValue = "0") int offset,
+                                                        @RequestParam(defaultValue = "" + MessageService.DEFAULT_PAGE_SIZE) int limit) {
+        if (!isValidSearch(q, offset, limit)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(messageService.searchMessages(q, offset, limit));
+    }
+
+    /*
+     * Push every message change as it happens, as Server-Sent Events
+     * @param postedBy optional, only changes to this author's messages
+     * @return an event stream, 200
+     *
+     * Event names are created, updated and deleted, each with a JSON
+     * MessageEvent as data. A client too slow to keep up gets later changes
+     * to the same message merged, and 'resync' if changes had to be dropped;
+     * it should then refetch. The stream ends after app.feed.timeout-seconds
+     * and clients reconnect.
+     */
+    @GetMapping(value = "/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void streamMessageEvents(@RequestParam(required = false) Integer postedBy,
+                                    HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // never blocks a dispatch thread on a client that stops reading, see EventStream
+        EventStream.open(request, response, messageFeed, postedBy, eventWriter, feedTimeoutMillis);
     }
 
     /*
@@ -130,9 +426,14 @@ public class SocialMediaController {
      * @param messageId the id
      * @return Message the requested message, 200
      * 200 if message is missing
+     * 304 if If-None-Match holds the current ETag
      */
     @GetMapping("/messages/{messageId}")
-    public ResponseEntity<Message> getMessageById(@PathVariable Integer messageId) {
+    public ResponseEntity<Message> getMessageById(@PathVariable Integer messageId, WebRequest request) {
+        if (request.checkNotModified(messageVersions.messageTag(messageId))) {
+            return null;
+        }
+
         Optional<Message> message = messageService.getMessageById(messageId);
         if (message.isEmpty()) {
             return ResponseEntity.ok().build();
@@ -146,14 +447,18 @@ public class SocialMediaController {
      * @param Message the JSON containing message details
      * @return Integer the number of messages updated (1), 200
      * 400 if no messages updated
+     * 401 if the session token is unknown or expired
      * 
-     * Only message text can be updated.
+     * Only message text can be updated. With a session token only the
+     * caller's own messages match; anyone else's look like missing ones.
      */
     @PatchMapping("/messages/{messageId}")
-    public ResponseEntity<Integer> updateMessage(@PathVariable Integer messageId, @RequestBody Message modifiedMessage) {
+    public ResponseEntity<Integer> updateMessage(@PathVariable Integer messageId, @RequestBody Message modifiedMessage,
+                                                 @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        Optional<Integer> caller = callers.callerFrom(authorization);
         modifiedMessage.setMessageId(messageId);
 
-        int updatedRows = messageService.updateMessage(modifiedMessage);
+        int updatedRows = messageService.updateMessage(modifiedMessage, caller.orElse(null));
 
         if (updatedRows == 0) {
             return ResponseEntity.badRequest().build();
@@ -165,11 +470,16 @@ public class SocialMediaController {
     /*
      * Delete message according to id
      * @param messageId the id
-     * @return Integer the number of messages deleted (1), 200 always
+     * @return Integer the number of messages deleted (1), 200
+     * 401 if the session token is unknown or expired
+     *
+     * With a session token only the caller's own messages are deleted.
      */
     @DeleteMapping("/messages/{messageId}")
-    public ResponseEntity<Integer> deleteMessage(@PathVariable Integer messageId) {
-        int deletedRows = messageService.deleteMessageById(messageId);
+    public ResponseEntity<Integer> deleteMessage(@PathVariable Integer messageId,
+                                                 @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        Optional<Integer> caller = callers.callerFrom(authorization);
+        int deletedRows = messageService.deleteMessageById(messageId, caller.orElse(null));
         if (deletedRows < 1) {
             return ResponseEntity.ok().build();
         }
@@ -179,10 +489,117 @@ public class SocialMediaController {
     /*
      * Get all messages from user according to user id
      * @param accountId the user id
-     * @return List<Message> the messages from the user, 200 always
+     * @return a JSON array of the messages from the user, newest first, 200
+     * 304 if If-None-Match holds the current ETag
+     *
+     * Streamed like GET /messages, from the author's timeline when it
+     * holds all of them.
+     */
+    @GetMapping(value = "/accounts/{accountId}/messages", params = {"!before", "!limit"},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getMessagesFromUserId(@PathVariable Integer accountId,
+                                                                       WebRequest request) {
+        if (request.checkNotModified(messageVersions.authorTag(accountId))) {
+            return null;
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = messageWriter.getFactory().createGenerator(outputStream);
+            generator.writeStartArray();
+            messageService.forEachMessageRowFromUserId(accountId, row -> writeMessage(generator, row));
+            generator.writeEndArray();
+            generator.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /*
+     * Get one page of the messages from user according to user id
+     * @param accountId the user id
+     * @param before optional cursor, 'timePostedEpoch:messageId' of the last message already seen,
+     * 'null:messageId' if that message had no time
+     * @param limit optional page size, defaults to 100
+     * @return List<Message> the messages from the user, newest first, 200
+     * 304 if If-None-Match holds the current ETag
+     * 400 if the cursor is malformed or limit is out of range
+     *
+     * A full page carries a Link header with rel="next" pointing at the
+     * following one. Messages without a time come last.
      */
     @GetMapping("/accounts/{accountId}/messages")
-    public ResponseEntity<List<Message>> getMessagesFromUserId(@PathVariable Integer accountId) {
-        return ResponseEntity.ok(messageService.getMessagesFromUserId(accountId));
+    public ResponseEntity<List<Message>> getMessagesFromUserIdPage(@PathVariable Integer accountId,
+                                                               @RequestParam(required = false) String before,
+                                                               @RequestParam(required = false) Integer limit,
+                                                               WebRequest request) {
+        Long beforeTime = Long.MAX_VALUE;
+        int beforeMessageId = Integer.MAX_VALUE;
+
+        if (before != null) {
+            int separator = before.indexOf(':');
+            try {
+                String time = before.substring(0, Math.max(separator, 0));
+                beforeTime = NO_TIME_CURSOR.equals(time) ? null : Long.valueOf(time);
+                beforeMessageId = Integer.parseInt(before.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
+        int pageSize = limit == null ? MessageService.DEFAULT_PAGE_SIZE : limit;
+
+        if (limit != null && (pageSize < 1 || pageSize > MessageService.MAX_PAGE_SIZE)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (request.checkNotModified(messageVersions.authorTag(accountId))) {
+            return null;
+        }
+
+        List<Message> page = messageService.getMessagesFromUserIdBefore(accountId, beforeTime, beforeMessageId, pageSize);
+
+        if (page.size() < pageSize) {
+            return ResponseEntity.ok(page);
+        }
+
+        Message last = page.get(page.size() - 1);
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("before", last.getTimePostedEpoch() + ":" + last.getMessageId())
+                .replaceQueryParam("limit", pageSize)
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .body(page);
+    }
+
+    /*
+     * Helpers
+     */
+
+    // the same fields, in the same order, as Jackson writes a Message
+    private static void writeMessage(JsonGenerator generator, MessageRows.Row row) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("messageId", row.getMessageId());
+        if (row.hasPostedBy()) {
+            generator.writeNumberField("postedBy", row.getPostedBy());
+        } else {
+            generator.writeNullField("postedBy");
+        }
+        generator.writeStringField("messageText", row.getMessageText());
+        if (row.hasTimePostedEpoch()) {
+            generator.writeNumberField("timePostedEpoch", row.getTimePostedEpoch());
+        } else {
+            generator.writeNullField("timePostedEpoch");
+        }
+        generator.writeEndObject();
+    }
+
+    // shared with ReactiveSocialMediaController
+    static boolean isValidSearch(String q, int offset, int limit) {
+        return q != null && !q.isBlank() && q.length() <= 255
+                && offset >= 0 && limit >= 1 && limit <= MessageService.MAX_PAGE_SIZE
+                && offset + limit <= MessageSearch.MAX_WINDOW;
     }
 }
@@ -0,0 +1,21 @@
+/*
+ * Id generators for the entities, one sequence per table, referenced by name from META-INF/orm.xml
+ *
+ * Block sizes are the app.id.*-block-size properties, see BlockSequenceGenerator.
+ */
+@GenericGenerators({
+        @GenericGenerator(name = "account_seq", strategy = "com.example.repository.BlockSequenceGenerator", parameters = {
+                @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "account_seq"),
+                @Parameter(name = BlockSequenceGenerator.BLOCK_SIZE_SETTING, value = "app.id.account-block-size")}),
+        @GenericGenerator(name = "message_seq", strategy = "com.example.repository.BlockSequenceGenerator", parameters = {
+                @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "message_seq"),
+                @Parameter(name = BlockSequenceGenerator.BLOCK_SIZE_SETTING, value = "app.id.message-block-size")})
+})
+package com.example.entity;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.GenericGenerators;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import com.example.repository.BlockSequenceGenerator;
@@ -0,0 +1,11 @@
+package com.example.exception;
+
+/*
+ * Thrown when a request carries a session token that is unknown or expired,
+ * or carries none where one is required
+ */
+public class InvalidSessionException extends RuntimeException {
+    public InvalidSessionException(String message) {
+        super(message);
+    }
+}
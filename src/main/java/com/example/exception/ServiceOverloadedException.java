@@ -0,0 +1,10 @@
+package com.example.exception;
+
+/*
+ * Thrown when a bounded worker pool refuses new work; the request should be retried later
+ */
+public class ServiceOverloadedException extends RuntimeException {
+    public ServiceOverloadedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
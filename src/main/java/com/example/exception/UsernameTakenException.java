@@ -0,0 +1,10 @@
+package com.example.exception;
+
+/*
+ * Thrown when a registration loses to the unique constraint on account.username
+ */
+public class UsernameTakenException extends RuntimeException {
+    public UsernameTakenException(String username, Throwable cause) {
+        super("username already taken: " + username, cause);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.repository;
+
+/*
+ * Read-only view of an account for checking a login
+ *
+ * Built by the query itself, so it is never managed by Hibernate.
+ */
+public final class AccountCredentials {
+    private final Integer accountId;
+    private final String username;
+    private final String password;
+
+    public AccountCredentials(Integer accountId, String username, String password) {
+        this.accountId = accountId;
+        this.username = username;
+        this.password = password;
+    }
+
+    public Integer getAccountId() {
+        return accountId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    // the stored hash
+    public String getPassword() {
+        return password;
+    }
+}
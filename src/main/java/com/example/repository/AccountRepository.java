@@ -1,13 +1,44 @@
 package com.example.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.entity.Account;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Integer> {
     Account findByUsername(String username);
-    // we could just use 'findByUsername' but this saves us some checking
-    Account findByUsernameAndPassword(String username, String password);
+
+    // projection, so login loads no managed Account
+    @Query("select new com.example.repository.AccountCredentials(a.accountId, a.username, a.password)"
+            + " from Account a where a.username = :username")
+    AccountCredentials findCredentialsByUsername(@Param("username") String username);
+    boolean existsByUsername(String username);
+
+    // one IN query for a whole batch of ids, returns only the ones that exist
+    @Query("select a.accountId from Account a where a.accountId in :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    // compare-and-set, so a re-hash never overwrites a password changed in the meantime
+    @Transactional
+    @Modifying
+    @Query("update Account a set a.password = :password where a.accountId = :accountId and a.password = :previousPassword")
+    int updatePassword(@Param("accountId") Integer accountId, @Param("previousPassword") String previousPassword,
+                       @Param("password") String password);
+
+    // must be consumed inside a transaction and closed
+    @Query("select a.username from Account a")
+    Stream<String> streamAllUsernames();
+
+    // must be consumed inside a transaction and closed
+    @Query("select a.accountId from Account a")
+    Stream<Integer> streamAllIds();
 }
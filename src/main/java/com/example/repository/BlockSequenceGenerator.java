@@ -0,0 +1,75 @@
+package com.example.repository;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/*
+ * Hibernate id generator that hands out ids from in-memory blocks of one sequence
+ *
+ * Each table has its own sequence and generator (see package-info of
+ * com.example.entity). Inserts take the next id of the current IdBlock;
+ * only when a block is used up does one of them read the sequence, which
+ * reserves the next block. Hibernate's own pooled-lo optimizer does the
+ * same behind a lock on every id.
+ *
+ * The block size comes from the Hibernate setting named by the
+ * BLOCK_SIZE_SETTING parameter and must equal the sequence's increment,
+ * which Flyway's afterMigrate callback sets from the same property;
+ * Hibernate checks the two match at startup. Ids left in a block at
+ * shutdown are never used, so at most one block's worth is skipped.
+ */
+public class BlockSequenceGenerator extends SequenceStyleGenerator {
+    public static final String BLOCK_SIZE_SETTING = "block_size_setting";
+
+    private volatile IdBlock block = IdBlock.EMPTY;
+    private int blockSize;
+    private Class<?> idType;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        String setting = params.getProperty(BLOCK_SIZE_SETTING);
+        Object configured = setting == null ? null
+                : serviceRegistry.getService(ConfigurationService.class).getSettings().get(setting);
+        if (configured != null) {
+            params.setProperty(INCREMENT_PARAM, configured.toString());
+        }
+
+        super.configure(type, params, serviceRegistry);
+        blockSize = getDatabaseStructure().getIncrementSize();
+        idType = type.getReturnedClass();
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        long id = block.take();
+        if (id < 0) {
+            id = nextBlock(session);
+        }
+        return IdentifierGeneratorHelper.getIntegralDataTypeHolder(idType).initialize(id).makeValue();
+    }
+
+    /*
+     * Helper, reserves a new block and takes its first id; inserts that ran out
+     * at the same time wait here for that block instead of reserving their own
+     */
+    private synchronized long nextBlock(SharedSessionContractImplementor session) {
+        long id = block.take();
+        if (id >= 0) {
+            return id;
+        }
+
+        long low = getDatabaseStructure().buildCallback(session).getNextValue().makeValue().longValue();
+        IdBlock reserved = new IdBlock(low, blockSize);
+        id = reserved.take();
+        block = reserved;
+        return id;
+    }
+}
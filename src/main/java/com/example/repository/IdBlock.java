@@ -0,0 +1,34 @@
+package com.example.repository;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Ids low to low + size - 1, handed out once each by an atomic counter
+ *
+ * One block is reserved per sequence call (pooled-lo: the sequence returns
+ * the low end and advances by the block size), so the sequence is read once
+ * every size ids and concurrent takers never wait on each other.
+ */
+final class IdBlock {
+    static final IdBlock EMPTY = new IdBlock(0, 0);
+
+    private final AtomicLong next;
+    private final long end;
+
+    IdBlock(long low, int size) {
+        this.next = new AtomicLong(low);
+        this.end = low + size;
+    }
+
+    /*
+     * @return long the next id, or -1 once the block is used up
+     */
+    long take() {
+        // a used-up block is left alone, so the counter cannot run past the end and wrap
+        if (next.get() >= end) {
+            return -1;
+        }
+        long id = next.getAndIncrement();
+        return id < end ? id : -1;
+    }
+}
@@ -0,0 +1,668 @@
+package com.example.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import com.example.entity.Message;
+
+/*
+ * An append-only message log in two memory-mapped files
+ *
+ * headers.log holds one fixed-width record per write:
+ *
+ *   0  int   type           INSERT, UPDATE or DELETE; 0 marks the end of the log
+ *   4  int   messageId
+ *   8  int   postedBy
+ *  12  int   textLength     bytes of UTF-8, -1 for no text
+ *  16  long  timePostedEpoch, Long.MIN_VALUE for none
+ *  24  long  textOffset     into text.log
+ *  32  long  link           INSERT: record number of the author's previous INSERT, -1 at the end
+ *                            UPDATE: record number of the INSERT it supersedes
+ *
+ * text.log holds the message texts back to back. Neither file is rewritten,
+ * an update appends a new record and a delete appends a tombstone. The
+ * in-heap part is primitive indexes, rebuilt by replaying headers.log on
+ * open: message id to its latest record, and per author their live
+ * records sorted by (timePostedEpoch, messageId), so an author page is a
+ * binary search and a walk of just that page. The INSERT links are still
+ * written, as a chain through each author's messages in the file itself.
+ *
+ * Readers share one read lock and only allocate the Message they return.
+ * The type field is written last, so a record is either complete or
+ * absent after a crash of the process; surviving a crash of the machine
+ * takes force().
+ */
+final class MappedMessageLog implements Closeable {
+    static final int HEADER_SIZE = 40;
+
+    private static final int HEADERS_PER_SEGMENT = 1 << 20;
+    private static final long HEADER_SEGMENT_SIZE = (long) HEADER_SIZE * HEADERS_PER_SEGMENT;
+    private static final long TEXT_SEGMENT_SIZE = 1L << 26;
+
+    private static final int INSERT = 1;
+    private static final int UPDATE = 2;
+    private static final int DELETE = 3;
+
+    // stored for a message without a time, so it sorts after every real time, newest first
+    static final long NO_TIME = Long.MIN_VALUE;
+    private static final int NO_TEXT = -1;
+    private static final long NONE = -1;
+
+    private static final int TYPE = 0;
+    private static final int MESSAGE_ID = 4;
+    private static final int POSTED_BY = 8;
+    private static final int TEXT_LENGTH = 12;
+    private static final int TIME_POSTED_EPOCH = 16;
+    private static final int TEXT_OFFSET = 24;
+    private static final int LINK = 32;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Segments headers;
+    private final Segments text;
+    private final SortedIdIndex messages = new SortedIdIndex();
+    private final IntLongHashMap newestByAuthor = new IntLongHashMap();
+    private final IntLongHashMap authorSlots = new IntLongHashMap();
+    private final List<AuthorMessages> authors = new ArrayList<>();
+
+    private long nextRecord;
+    private long textEnd;
+    private int nextMessageId = 1;
+    private int liveCount;
+
+    MappedMessageLog(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.headers = new Segments(directory.resolve("headers.log"), HEADER_SEGMENT_SIZE);
+        this.text = new Segments(directory.resolve("text.log"), TEXT_SEGMENT_SIZE);
+        replay();
+    }
+
+    boolean isEmpty() {
+        return nextRecord == 0;
+    }
+
+    // READS -------------------------------
+
+    Message find(int messageId) {
+        lock.readLock().lock();
+        try {
+            long record = messages.get(messageId);
+            return record == NONE ? null : read(record);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    int count() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Hands messages with an id greater than afterId to the consumer, in id order
+     * @return int the id of the last message handed over, afterId if none
+     */
+    int forEachAfter(int afterId, int limit, Consumer<Message> consumer) {
+        lock.readLock().lock();
+        try {
+            int last = afterId;
+            int handed = 0;
+            for (int i = messages.firstAfter(afterId); i < messages.size && handed < limit; i++) {
+                long record = messages.records[i];
+                if (record != NONE) {
+                    consumer.accept(read(record));
+                    last = messages.ids[i];
+                    handed++;
+                }
+            }
+            return last;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * One author's messages newest first, optionally only those ordered after a cursor
+     *
+     * Like the SQL order, messages without a time come last; a cursor of
+     * NO_TIME continues among them. Only the page itself is visited and
+     * decoded into messages.
+     */
+    List<Message> byAuthor(int postedBy, boolean afterCursor, long beforeTime, int beforeMessageId,
+                           long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            AuthorMessages authored = authorMessages(postedBy, false);
+            if (authored == null) {
+                return new ArrayList<>(0);
+            }
+
+            // oldest first, so the page runs down from just below the cursor
+            int end = afterCursor ? authored.firstAtOrAfter(beforeTime, beforeMessageId) : authored.size;
+            long from = end - 1 - offset;
+            List<Message> page = new ArrayList<>((int) Math.max(0, Math.min(limit, from + 1)));
+            for (long i = from; i >= 0 && page.size() < limit; i--) {
+                page.add(read(authored.records[(int) i]));
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // WRITES -------------------------------
+
+    /*
+     * Insert a message, or replace it if its id is already in the log
+     * @return Message a copy with the id assigned
+     */
+    Message save(Message message) {
+        if (message.getPostedBy() == null) {
+            throw new IllegalArgumentException("postedBy cannot be null");
+        }
+
+        lock.writeLock().lock();
+        try {
+            Integer messageId = message.getMessageId();
+            long current = messageId == null ? NONE : messages.get(messageId);
+
+            long record;
+            if (current != NONE && headerInt(current, POSTED_BY) == message.getPostedBy()) {
+                record = append(UPDATE, messageId, message.getPostedBy(), message.getMessageText(),
+                        message.getTimePostedEpoch(), insertOf(current));
+            } else {
+                if (current != NONE) {
+                    delete(messageId);
+                }
+                record = append(INSERT, messageId == null ? nextMessageId : messageId, message.getPostedBy(),
+                        message.getMessageText(), message.getTimePostedEpoch(), newestByAuthor.get(message.getPostedBy()));
+            }
+            return read(record);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 1 if the message exists and belongs to postedBy, else 0
+    int updateText(int messageId, int postedBy, String messageText) {
+        lock.writeLock().lock();
+        try {
+            long current = messages.get(messageId);
+            if (current == NONE || headerInt(current, POSTED_BY) != postedBy) {
+                return 0;
+            }
+            long time = headerLong(current, TIME_POSTED_EPOCH);
+            append(UPDATE, messageId, postedBy, messageText, time == NO_TIME ? null : time, insertOf(current));
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // any author's message; the author, null if the message does not exist
+    Integer updateTextReturningPostedBy(int messageId, String messageText) {
+        lock.writeLock().lock();
+        try {
+            long current = messages.get(messageId);
+            if (current == NONE) {
+                return null;
+            }
+            int postedBy = headerInt(current, POSTED_BY);
+            long time = headerLong(current, TIME_POSTED_EPOCH);
+            append(UPDATE, messageId, postedBy, messageText, time == NO_TIME ? null : time, insertOf(current));
+            return postedBy;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the author of the deleted message, null if it did not exist
+    Integer deleteReturningPostedBy(int messageId) {
+        lock.writeLock().lock();
+        try {
+            long current = messages.get(messageId);
+            if (current == NONE) {
+                return null;
+            }
+            int postedBy = headerInt(current, POSTED_BY);
+            delete(messageId);
+            return postedBy;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 1 if the message existed (and belongs to postedBy, unless that is null), else 0
+    int delete(int messageId, Integer postedBy) {
+        lock.writeLock().lock();
+        try {
+            long current = messages.get(messageId);
+            if (current == NONE || (postedBy != null && headerInt(current, POSTED_BY) != postedBy)) {
+                return 0;
+            }
+            delete(messageId);
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Flush written pages to the files
+     */
+    void force() {
+        // excludes writers, which mark segments dirty
+        lock.readLock().lock();
+        try {
+            headers.force();
+            text.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            headers.force();
+            text.force();
+            headers.close();
+            text.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Helpers
+     */
+    private void delete(int messageId) {
+        long current = messages.get(messageId);
+        append(DELETE, messageId, headerInt(current, POSTED_BY), null, null, NONE);
+    }
+
+    private long append(int type, int messageId, int postedBy, String messageText, Long timePostedEpoch, long link) {
+        int textLength = NO_TEXT;
+        long textOffset = 0;
+        if (messageText != null) {
+            byte[] bytes = messageText.getBytes(StandardCharsets.UTF_8);
+            textLength = bytes.length;
+            textOffset = allocateText(textLength);
+            ByteBuffer target = text.bufferAt(textOffset).duplicate();
+            target.position(text.offsetIn(textOffset));
+            target.put(bytes);
+            text.markDirty(textOffset);
+        }
+
+        long record = nextRecord;
+        ByteBuffer header = headers.bufferAt(record * HEADER_SIZE);
+        int at = headers.offsetIn(record * HEADER_SIZE);
+        header.putInt(at + MESSAGE_ID, messageId);
+        header.putInt(at + POSTED_BY, postedBy);
+        header.putInt(at + TEXT_LENGTH, textLength);
+        header.putLong(at + TIME_POSTED_EPOCH, timePostedEpoch == null ? NO_TIME : timePostedEpoch);
+        header.putLong(at + TEXT_OFFSET, textOffset);
+        header.putLong(at + LINK, link);
+        header.putInt(at + TYPE, type); // last, this completes the record
+        headers.markDirty(record * HEADER_SIZE);
+
+        nextRecord++;
+        apply(type, messageId, postedBy, record);
+        return record;
+    }
+
+    // updates the in-heap indexes for one record, shared by writes and replay
+    private void apply(int type, int messageId, int postedBy, long record) {
+        long previous = messages.get(messageId);
+        boolean placed = false;
+        if (previous != NONE) {
+            int previousAuthor = headerInt(previous, POSTED_BY);
+            AuthorMessages authored = authorMessages(previousAuthor, true);
+            placed = type != DELETE && previousAuthor == postedBy && authored.replace(previous, record);
+            if (!placed) {
+                authored.remove(previous);
+            }
+            liveCount--;
+        }
+
+        if (type == DELETE) {
+            messages.put(messageId, NONE);
+            return;
+        }
+
+        messages.put(messageId, record);
+        liveCount++;
+        if (!placed) {
+            authorMessages(postedBy, true).add(record);
+        }
+        if (type == INSERT) {
+            newestByAuthor.put(postedBy, record);
+            nextMessageId = Math.max(nextMessageId, messageId + 1);
+        }
+    }
+
+    private AuthorMessages authorMessages(int postedBy, boolean create) {
+        long slot = authorSlots.get(postedBy);
+        if (slot != NONE) {
+            return authors.get((int) slot);
+        }
+        if (!create) {
+            return null;
+        }
+        AuthorMessages authored = new AuthorMessages();
+        authorSlots.put(postedBy, authors.size());
+        authors.add(authored);
+        return authored;
+    }
+
+    private void replay() {
+        for (long record = 0; ; record++) {
+            int type = headerInt(record, TYPE);
+            if (type == 0) {
+                nextRecord = record;
+                if (textEnd > 0) {
+                    text.bufferAt(textEnd - 1); // maps every text segment before the first read needs one
+                }
+                return;
+            }
+
+            apply(type, headerInt(record, MESSAGE_ID), headerInt(record, POSTED_BY), record);
+
+            int textLength = headerInt(record, TEXT_LENGTH);
+            if (textLength != NO_TEXT) {
+                textEnd = Math.max(textEnd, headerLong(record, TEXT_OFFSET) + textLength);
+            }
+        }
+    }
+
+    // texts never straddle two segments, one that would starts the next segment instead
+    private long allocateText(int length) {
+        long offset = textEnd;
+        if (offset % TEXT_SEGMENT_SIZE + length > TEXT_SEGMENT_SIZE) {
+            offset = (offset / TEXT_SEGMENT_SIZE + 1) * TEXT_SEGMENT_SIZE;
+        }
+        textEnd = offset + length;
+        return offset;
+    }
+
+    private long insertOf(long record) {
+        return headerInt(record, TYPE) == INSERT ? record : headerLong(record, LINK);
+    }
+
+    private Message read(long record) {
+        int textLength = headerInt(record, TEXT_LENGTH);
+        String messageText = null;
+
+        if (textLength != NO_TEXT) {
+            long textOffset = headerLong(record, TEXT_OFFSET);
+            ByteBuffer source = text.bufferAt(textOffset).duplicate();
+            int at = text.offsetIn(textOffset);
+            source.position(at).limit(at + textLength);
+            messageText = StandardCharsets.UTF_8.decode(source).toString();
+        }
+
+        long time = headerLong(record, TIME_POSTED_EPOCH);
+        return new Message(headerInt(record, MESSAGE_ID), headerInt(record, POSTED_BY), messageText,
+                time == NO_TIME ? null : time);
+    }
+
+    private int headerInt(long record, int field) {
+        long position = record * HEADER_SIZE;
+        return headers.bufferAt(position).getInt(headers.offsetIn(position) + field);
+    }
+
+    private long headerLong(long record, int field) {
+        long position = record * HEADER_SIZE;
+        return headers.bufferAt(position).getLong(headers.offsetIn(position) + field);
+    }
+
+    /*
+     * One author's live records, oldest first by (timePostedEpoch, messageId)
+     *
+     * The keys are read from the records' headers. Times mostly grow, so
+     * nearly every add is an append; an update that keeps its time stays in
+     * its slot.
+     */
+    private final class AuthorMessages {
+        long[] records = new long[8];
+        int size;
+
+        int firstAtOrAfter(long time, int messageId) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                long record = records[middle];
+                int order = Long.compare(headerLong(record, TIME_POSTED_EPOCH), time);
+                if (order == 0) {
+                    order = Integer.compare(headerInt(record, MESSAGE_ID), messageId);
+                }
+                if (order < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        void add(long record) {
+            int at = indexOf(record);
+            if (size == records.length) {
+                records = Arrays.copyOf(records, size + (size >> 1));
+            }
+            System.arraycopy(records, at, records, at + 1, size - at);
+            records[at] = record;
+            size++;
+        }
+
+        void remove(long record) {
+            int at = indexOf(record);
+            if (at < size && records[at] == record) {
+                System.arraycopy(records, at + 1, records, at, size - at - 1);
+                size--;
+            }
+        }
+
+        // swaps in the superseding record if it sorts the same, true if it did
+        boolean replace(long previous, long record) {
+            int at = indexOf(previous);
+            if (at == size || records[at] != previous
+                    || headerLong(previous, TIME_POSTED_EPOCH) != headerLong(record, TIME_POSTED_EPOCH)) {
+                return false;
+            }
+            records[at] = record;
+            return true;
+        }
+
+        private int indexOf(long record) {
+            return firstAtOrAfter(headerLong(record, TIME_POSTED_EPOCH), headerInt(record, MESSAGE_ID));
+        }
+    }
+
+    /*
+     * A file mapped in fixed-size segments, grown one segment at a time
+     *
+     * Readers under the shared read lock may be the first to touch a
+     * segment, so the mapped segments are a copy-on-write array and only
+     * one thread at a time maps more of them.
+     */
+    private static final class Segments implements Closeable {
+        private final FileChannel channel;
+        private final long segmentSize;
+        private volatile MappedByteBuffer[] buffers = new MappedByteBuffer[0];
+        private final BitSet dirty = new BitSet();
+
+        Segments(Path file, long segmentSize) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.segmentSize = segmentSize;
+        }
+
+        MappedByteBuffer bufferAt(long position) {
+            int segment = (int) (position / segmentSize);
+            MappedByteBuffer[] mapped = buffers;
+            return segment < mapped.length ? mapped[segment] : map(segment);
+        }
+
+        int offsetIn(long position) {
+            return (int) (position % segmentSize);
+        }
+
+        void markDirty(long position) {
+            dirty.set((int) (position / segmentSize));
+        }
+
+        synchronized void force() {
+            for (int segment = dirty.nextSetBit(0); segment >= 0; segment = dirty.nextSetBit(segment + 1)) {
+                buffers[segment].force();
+            }
+            dirty.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        // maps the segment, and any before it, unless another thread got there first
+        private synchronized MappedByteBuffer map(int segment) {
+            MappedByteBuffer[] mapped = buffers;
+            if (segment >= mapped.length) {
+                mapped = Arrays.copyOf(mapped, segment + 1);
+                for (int i = buffers.length; i <= segment; i++) {
+                    try {
+                        mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * segmentSize, segmentSize);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                buffers = mapped;
+            }
+            return mapped[segment];
+        }
+    }
+
+    /*
+     * Message id to record number, as two sorted primitive arrays
+     *
+     * Ids come from a sequence, so nearly every insert is an append. Deleted
+     * ids keep their slot with NONE, which keeps keyset scans simple.
+     */
+    private static final class SortedIdIndex {
+        int[] ids = new int[1024];
+        long[] records = new long[1024];
+        int size;
+
+        long get(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            return index < 0 ? NONE : records[index];
+        }
+
+        int firstAfter(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            return index < 0 ? -1 - index : index + 1;
+        }
+
+        void put(int id, long record) {
+            int index = size > 0 && id > ids[size - 1] ? -1 - size : Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                records[index] = record;
+                return;
+            }
+            if (record == NONE) {
+                return;
+            }
+
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1));
+                records = Arrays.copyOf(records, ids.length);
+            }
+            int insertAt = -1 - index;
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            System.arraycopy(records, insertAt, records, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            records[insertAt] = record;
+            size++;
+        }
+    }
+
+    /*
+     * Author id to record number, open addressing with linear probing
+     */
+    private static final class IntLongHashMap {
+        private int[] keys = new int[1024];
+        private long[] values = filled(1024);
+        private int size;
+
+        long get(int key) {
+            int mask = keys.length - 1;
+            for (int slot = mix(key) & mask; values[slot] != NONE; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            return NONE;
+        }
+
+        void put(int key, long value) {
+            if (size * 2 >= keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (values[slot] != NONE && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (values[slot] == NONE) {
+                size++;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = filled(keys.length);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != NONE) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static long[] filled(int length) {
+            long[] array = new long[length];
+            Arrays.fill(array, NONE);
+            return array;
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
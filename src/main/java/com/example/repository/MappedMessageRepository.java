@@ -0,0 +1,269 @@
+package com.example.repository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.entity.Message;
+
+/*
+ * MessageRepository over a MappedMessageLog, active with the 'mmap' profile
+ *
+ * Messages live in memory-mapped files under app.store.mmap.directory
+ * rather than the message table, so the heap only holds the log's primitive
+ * indexes (about 30 bytes per message) and the OS pages message data in and out.
+ * On first start the log is filled from the message table; from then on
+ * the log is the store and the table is left as it was. Written pages go
+ * to disk every app.store.mmap.force-interval-millis and on shutdown.
+ *
+ * Being @Primary it replaces the JPA repository for MessageService and
+ * everything else injecting a MessageRepository. Ids are handed out by the
+ * log, one past the highest id it holds.
+ */
+@Repository
+@Primary
+@Profile("mmap")
+public class MappedMessageRepository implements MessageRepository {
+    private static final int SCAN_CHUNK_SIZE = 500;
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedMessageRepository.class);
+
+    private final MappedMessageLog log;
+    private final ScheduledExecutorService flusher;
+
+    @Autowired
+    public MappedMessageRepository(JdbcTemplate jdbcTemplate,
+                                   @Value("${app.store.mmap.directory}") String directory,
+                                   @Value("${app.store.mmap.force-interval-millis:1000}") long forceIntervalMillis) throws IOException {
+        this.log = new MappedMessageLog(Path.of(directory));
+
+        if (log.isEmpty()) {
+            // nullable columns are read as objects, so a NULL stays null rather than becoming 0
+            AtomicInteger skipped = new AtomicInteger();
+            jdbcTemplate.query("select messageId, postedBy, messageText, timePostedEpoch from message order by messageId",
+                    row -> {
+                        Integer postedBy = row.getObject("postedBy", Integer.class);
+                        if (postedBy == null) {
+                            skipped.incrementAndGet(); // the log only holds messages with an author
+                            return;
+                        }
+                        log.save(new Message(row.getInt("messageId"), postedBy,
+                                row.getString("messageText"), row.getObject("timePostedEpoch", Long.class)));
+                    });
+            log.force();
+            if (skipped.get() > 0) {
+                logger.warn("event=message_log_seed_skipped reason=null_author messages={}", skipped.get());
+            }
+        }
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-log-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(log::force, forceIntervalMillis, forceIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        flusher.shutdownNow();
+        log.close();
+    }
+
+    // QUERIES -------------------------------
+
+    @Override
+    public List<Message> findAllOrderByMessageId() {
+        ArrayList<Message> all = new ArrayList<>(log.count());
+        log.forEachAfter(Integer.MIN_VALUE, Integer.MAX_VALUE, all::add);
+        return all;
+    }
+
+    @Override
+    public List<Message> findByPostedByOrderByTimePostedEpochDescMessageIdDesc(Integer id) {
+        return log.byAuthor(id, false, 0, 0, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Message> findByPostedByOrderByTimePostedEpochDescMessageIdDesc(Integer id, Pageable pageable) {
+        return log.byAuthor(id, false, 0, 0, pageable.getOffset(), pageable.getPageSize());
+    }
+
+    @Override
+    public List<Message> findByPostedByBefore(Integer postedBy, Long beforeTime, Integer beforeId, Pageable pageable) {
+        return log.byAuthor(postedBy, true, beforeTime, beforeId, pageable.getOffset(), pageable.getPageSize());
+    }
+
+    @Override
+    public List<Message> findByPostedByWithoutTimeBefore(Integer postedBy, Integer beforeId, Pageable pageable) {
+        return log.byAuthor(postedBy, true, MappedMessageLog.NO_TIME, beforeId, pageable.getOffset(),
+                pageable.getPageSize());
+    }
+
+    @Override
+    public List<Message> findByMessageIdGreaterThanOrderByMessageIdAsc(Integer messageId, Pageable pageable) {
+        List<Message> page = new ArrayList<>(pageable.getPageSize());
+        long[] skip = {pageable.getOffset()};
+        log.forEachAfter(messageId, (int) Math.min(skip[0] + pageable.getPageSize(), Integer.MAX_VALUE), message -> {
+            if (skip[0] > 0) {
+                skip[0]--;
+            } else {
+                page.add(message);
+            }
+        });
+        return page;
+    }
+
+    // read in chunks, each under its own read lock, so a slow consumer never holds up writers
+    @Override
+    public Stream<Message> streamAll() {
+        Iterator<Message> messages = new Iterator<>() {
+            private List<Message> chunk = new ArrayList<>();
+            private int position;
+            private int lastId = Integer.MIN_VALUE;
+
+            @Override
+            public boolean hasNext() {
+                if (position == chunk.size()) {
+                    List<Message> next = new ArrayList<>(SCAN_CHUNK_SIZE);
+                    lastId = log.forEachAfter(lastId, SCAN_CHUNK_SIZE, next::add);
+                    chunk = next;
+                    position = 0;
+                }
+                return position < chunk.size();
+            }
+
+            @Override
+            public Message next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return chunk.get(position++);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(messages,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public int updateTextByIdAndPostedBy(Integer messageId, Integer postedBy, String messageText) {
+        return log.updateText(messageId, postedBy, messageText);
+    }
+
+    @Override
+    public int deleteByIdAndPostedByReturningCount(Integer messageId, Integer postedBy) {
+        return log.delete(messageId, postedBy);
+    }
+
+    @Override
+    public Optional<Integer> updateTextByIdReturningPostedBy(Integer messageId, String messageText) {
+        return Optional.ofNullable(log.updateTextReturningPostedBy(messageId, messageText));
+    }
+
+    @Override
+    public Optional<Integer> deleteByIdReturningPostedBy(Integer messageId) {
+        return Optional.ofNullable(log.deleteReturningPostedBy(messageId));
+    }
+
+    // CRUD -------------------------------
+
+    // the log hands back copies, so the caller's instance gets the id the way a JPA save would set it
+    @Override
+    public <S extends Message> S save(S entity) {
+        Message saved = log.save(entity);
+        entity.setMessageId(saved.getMessageId());
+        return entity;
+    }
+
+    @Override
+    public <S extends Message> Iterable<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(entity -> saved.add(save(entity)));
+        return saved;
+    }
+
+    @Override
+    public Optional<Message> findById(Integer messageId) {
+        return Optional.ofNullable(log.find(messageId));
+    }
+
+    @Override
+    public boolean existsById(Integer messageId) {
+        return log.find(messageId) != null;
+    }
+
+    @Override
+    public Iterable<Message> findAll() {
+        return findAllOrderByMessageId();
+    }
+
+    @Override
+    public Iterable<Message> findAllById(Iterable<Integer> messageIds) {
+        ArrayList<Message> found = new ArrayList<>();
+        for (Integer messageId : messageIds) {
+            Message message = log.find(messageId);
+            if (message != null) {
+                found.add(message);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public long count() {
+        return log.count();
+    }
+
+    @Override
+    public void deleteById(Integer messageId) {
+        log.delete(messageId, null);
+    }
+
+    @Override
+    public void delete(Message entity) {
+        if (entity.getMessageId() != null) {
+            log.delete(entity.getMessageId(), null);
+        }
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Integer> messageIds) {
+        messageIds.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Message> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        List<Integer> messageIds = new ArrayList<>(log.count());
+        log.forEachAfter(Integer.MIN_VALUE, Integer.MAX_VALUE, message -> messageIds.add(message.getMessageId()));
+        deleteAllById(messageIds);
+    }
+}
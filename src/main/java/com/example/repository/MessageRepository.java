@@ -1,13 +1,83 @@
 package com.example.repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.entity.Message;
 
 @Repository
 public interface MessageRepository extends CrudRepository<Message, Integer> {
-    List<Message> findByPostedBy(Integer id);
+    // read projection: 'select new' builds plain Messages, never managed, so no
+    // entity entries or dirty-checking snapshots are kept for rows only read
+    String AS_MESSAGE = "select new com.example.entity.Message(m.messageId, m.postedBy, m.messageText, m.timePostedEpoch)";
+
+    @Query(AS_MESSAGE + " from Message m order by m.messageId")
+    List<Message> findAllOrderByMessageId();
+
+    // an author's timeline order: newest first, messages without a time last
+    @Query(AS_MESSAGE + " from Message m where m.postedBy = :postedBy order by m.timePostedEpoch desc nulls last, m.messageId desc")
+    List<Message> findByPostedByOrderByTimePostedEpochDescMessageIdDesc(@Param("postedBy") Integer id);
+
+    @Query(AS_MESSAGE + " from Message m where m.postedBy = :postedBy order by m.timePostedEpoch desc nulls last, m.messageId desc")
+    List<Message> findByPostedByOrderByTimePostedEpochDescMessageIdDesc(@Param("postedBy") Integer id, Pageable pageable);
+
+    // keyset page of an author's timeline: rows ordered after the cursor message, newest first,
+    // so every message without a time follows a cursor that has one
+    @Query(AS_MESSAGE + " from Message m where m.postedBy = :postedBy and (m.timePostedEpoch < :beforeTime"
+            + " or (m.timePostedEpoch = :beforeTime and m.messageId < :beforeId) or m.timePostedEpoch is null)"
+            + " order by m.timePostedEpoch desc nulls last, m.messageId desc")
+    List<Message> findByPostedByBefore(@Param("postedBy") Integer postedBy, @Param("beforeTime") Long beforeTime,
+                                       @Param("beforeId") Integer beforeId, Pageable pageable);
+
+    // keyset page for a cursor message without a time: only the timeless tail is left
+    @Query(AS_MESSAGE + " from Message m where m.postedBy = :postedBy and m.timePostedEpoch is null"
+            + " and m.messageId < :beforeId order by m.messageId desc")
+    List<Message> findByPostedByWithoutTimeBefore(@Param("postedBy") Integer postedBy,
+                                                  @Param("beforeId") Integer beforeId, Pageable pageable);
+
+    // keyset page: rows strictly after the cursor, so deep pages cost the same as the first one
+    @Query(AS_MESSAGE + " from Message m where m.messageId > :messageId order by m.messageId")
+    List<Message> findByMessageIdGreaterThanOrderByMessageIdAsc(@Param("messageId") Integer messageId, Pageable pageable);
+
+    // forward-only JDBC cursor, must be consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query(AS_MESSAGE + " from Message m order by m.messageId")
+    Stream<Message> streamAll();
+
+    // single-statement writes, the returned count tells the caller whether the row existed;
+    // scoped by owner, so someone else's message matches nothing, same as a missing one
+    @Transactional
+    @Modifying
+    @Query("update Message m set m.messageText = :messageText where m.messageId = :messageId and m.postedBy = :postedBy")
+    int updateTextByIdAndPostedBy(@Param("messageId") Integer messageId, @Param("postedBy") Integer postedBy,
+                                  @Param("messageText") String messageText);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Message m where m.messageId = :messageId and m.postedBy = :postedBy")
+    int deleteByIdAndPostedByReturningCount(@Param("messageId") Integer messageId, @Param("postedBy") Integer postedBy);
+
+    // unscoped single-statement writes that also return the author the event needs: H2's data
+    // change delta tables read the changed row in the same statement, empty if the id is missing
+    @Transactional
+    @Query(value = "select postedBy from final table (update message set messageText = :messageText"
+            + " where messageId = :messageId)", nativeQuery = true)
+    Optional<Integer> updateTextByIdReturningPostedBy(@Param("messageId") Integer messageId,
+                                                      @Param("messageText") String messageText);
+
+    @Transactional
+    @Query(value = "select postedBy from old table (delete from message where messageId = :messageId)", nativeQuery = true)
+    Optional<Integer> deleteByIdReturningPostedBy(@Param("messageId") Integer messageId);
 }
@@ -0,0 +1,139 @@
+package com.example.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.entity.Message;
+
+/*
+ * Message rows straight off a JDBC cursor, for callers that only pass them on
+ *
+ * No Hibernate on this path: no entity per row, no persistence context, no
+ * dirty-checking snapshot. Each query refills a single Row, so the text is
+ * the only object allocated per row. Not active with the 'mmap' profile,
+ * where the message table is not the store.
+ */
+@Repository
+@Profile("!mmap")
+public class MessageRows {
+    private static final int FETCH_SIZE = 500;
+    private static final String COLUMNS = "messageId, postedBy, messageText, timePostedEpoch";
+
+    public interface Handler {
+        // the row is reused for the next one, so it must not be kept
+        void accept(Row row) throws IOException;
+    }
+
+    private final JdbcTemplate jdbc;
+
+    @Autowired
+    public MessageRows(DataSource dataSource) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.jdbc.setFetchSize(FETCH_SIZE);
+    }
+
+    // in id order
+    public void forEach(Handler handler) throws IOException {
+        query(handler, "select " + COLUMNS + " from message order by messageId");
+    }
+
+    // newest first and messages without a time last, the order of the (postedBy, timePostedEpoch desc, messageId desc) index
+    public void forEachByPostedBy(int postedBy, Handler handler) throws IOException {
+        query(handler, "select " + COLUMNS + " from message where postedBy = ? " +
+                "order by timePostedEpoch desc nulls last, messageId desc", postedBy);
+    }
+
+    /*
+     * Helper, IOExceptions from the handler cross JdbcTemplate unchecked and are rethrown as they were
+     */
+    private void query(Handler handler, String sql, Object... args) throws IOException {
+        Row row = new Row();
+        try {
+            jdbc.query(sql, resultSet -> {
+                try {
+                    handler.accept(row.fill(resultSet));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, args);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /*
+     * One message's columns, refilled for every row
+     */
+    public static final class Row {
+        private int messageId;
+        private int postedBy;
+        private boolean postedByNull;
+        private String messageText;
+        private long timePostedEpoch;
+        private boolean timePostedEpochNull;
+
+        public int getMessageId() {
+            return messageId;
+        }
+
+        public boolean hasPostedBy() {
+            return !postedByNull;
+        }
+
+        public int getPostedBy() {
+            return postedBy;
+        }
+
+        public String getMessageText() {
+            return messageText;
+        }
+
+        public boolean hasTimePostedEpoch() {
+            return !timePostedEpochNull;
+        }
+
+        public long getTimePostedEpoch() {
+            return timePostedEpoch;
+        }
+
+        // for rows that come from somewhere other than the message table
+        public Row set(Message message) {
+            messageId = message.getMessageId();
+            postedByNull = message.getPostedBy() == null;
+            postedBy = postedByNull ? 0 : message.getPostedBy();
+            messageText = message.getMessageText();
+            timePostedEpochNull = message.getTimePostedEpoch() == null;
+            timePostedEpoch = timePostedEpochNull ? 0 : message.getTimePostedEpoch();
+            return this;
+        }
+
+        public Row set(int messageId, int postedBy, String messageText, Long timePostedEpoch) {
+            this.messageId = messageId;
+            this.postedBy = postedBy;
+            this.postedByNull = false;
+            this.messageText = messageText;
+            this.timePostedEpochNull = timePostedEpoch == null;
+            this.timePostedEpoch = timePostedEpochNull ? 0 : timePostedEpoch;
+            return this;
+        }
+
+        private Row fill(ResultSet resultSet) throws SQLException {
+            messageId = resultSet.getInt(1);
+            postedBy = resultSet.getInt(2);
+            postedByNull = resultSet.wasNull();
+            messageText = resultSet.getString(3);
+            timePostedEpoch = resultSet.getLong(4);
+            timePostedEpochNull = resultSet.wasNull();
+            return this;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.repository;
+
+import java.util.Collection;
+import java.util.function.BiFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import com.example.entity.Account;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+ * Non-blocking account queries for the reactive stack
+ *
+ * New ids come from account_seq in blocks, shared with the JPA stack, see
+ * ReactiveSequence.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveAccountRepository {
+    private static final BiFunction<Row, RowMetadata, Account> ACCOUNT = (row, metadata) -> new Account(
+            row.get("accountId", Integer.class),
+            row.get("username", String.class),
+            row.get("password", String.class));
+
+    private final DatabaseClient client;
+    private final ReactiveSequence accountIds;
+
+    @Autowired
+    public ReactiveAccountRepository(DatabaseClient client,
+                                     @Value("${app.id.account-block-size:10}") int accountBlockSize) {
+        this.client = client;
+        this.accountIds = new ReactiveSequence(client, "account_seq", accountBlockSize);
+    }
+
+    public Mono<Account> findByUsername(String username) {
+        return client.sql("select accountId, username, password from account where username = :username")
+                .bind("username", username)
+                .map(ACCOUNT)
+                .one();
+    }
+
+    public Mono<Boolean> existsById(int accountId) {
+        return client.sql("select count(*) from account where accountId = :accountId")
+                .bind("accountId", accountId)
+                .map((row, metadata) -> row.get(0, Long.class) > 0)
+                .one();
+    }
+
+    public Mono<Boolean> existsByUsername(String username) {
+        return client.sql("select count(*) from account where username = :username")
+                .bind("username", username)
+                .map((row, metadata) -> row.get(0, Long.class) > 0)
+                .one();
+    }
+
+    // one IN query for a whole batch of ids, returns only the ones that exist
+    public Flux<Integer> findExistingIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return client.sql("select accountId from account where accountId in (:ids)")
+                .bind("ids", ids)
+                .map((row, metadata) -> row.get("accountId", Integer.class))
+                .all();
+    }
+
+    /*
+     * @return Mono<Integer> the generated account id
+     * throws DataIntegrityViolationException if the username is taken
+     */
+    public Mono<Integer> insert(String username, String password) {
+        return accountIds.nextId().flatMap(accountId -> client.sql(
+                        "insert into account (accountId, username, password) values (:accountId, :username, :password)")
+                .bind("accountId", accountId)
+                .bind("username", username)
+                .bind("password", password)
+                .fetch()
+                .rowsUpdated()
+                .thenReturn(accountId));
+    }
+
+    // compare-and-set, so a re-hash never overwrites a password changed in the meantime
+    public Mono<Integer> updatePassword(int accountId, String previousPassword, String password) {
+        return client.sql("update account set password = :password where accountId = :accountId and password = :previousPassword")
+                .bind("accountId", accountId)
+                .bind("previousPassword", previousPassword)
+                .bind("password", password)
+                .fetch()
+                .rowsUpdated();
+    }
+}
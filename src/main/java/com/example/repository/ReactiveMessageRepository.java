@@ -0,0 +1,168 @@
+package com.example.repository;
+
+import java.util.Collection;
+import java.util.function.BiFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import com.example.entity.Message;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+ * Non-blocking message queries for the reactive stack
+ *
+ * Plain SQL over R2DBC; the JPA mapping of Message does not apply here.
+ * New ids come from message_seq in blocks, shared with the JPA stack, see
+ * ReactiveSequence.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveMessageRepository {
+    private static final String COLUMNS = "messageId, postedBy, messageText, timePostedEpoch";
+
+    private static final BiFunction<Row, RowMetadata, Message> MESSAGE = (row, metadata) -> new Message(
+            row.get("messageId", Integer.class),
+            row.get("postedBy", Integer.class),
+            row.get("messageText", String.class),
+            row.get("timePostedEpoch", Long.class));
+
+    private final DatabaseClient client;
+    private final ReactiveSequence messageIds;
+
+    @Autowired
+    public ReactiveMessageRepository(DatabaseClient client,
+                                     @Value("${app.id.message-block-size:50}") int messageBlockSize) {
+        this.client = client;
+        this.messageIds = new ReactiveSequence(client, "message_seq", messageBlockSize);
+    }
+
+    public Flux<Message> findAll() {
+        return client.sql("select " + COLUMNS + " from message order by messageId")
+                .map(MESSAGE)
+                .all();
+    }
+
+    // keyset page, same as MessageRepository.findByMessageIdGreaterThanOrderByMessageIdAsc
+    public Flux<Message> findAfter(int after, int limit) {
+        return client.sql("select " + COLUMNS + " from message where messageId > :after order by messageId limit :limit")
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(MESSAGE)
+                .all();
+    }
+
+    public Mono<Message> findById(int messageId) {
+        return client.sql("select " + COLUMNS + " from message where messageId = :messageId")
+                .bind("messageId", messageId)
+                .map(MESSAGE)
+                .one();
+    }
+
+    // in no particular order
+    public Flux<Message> findAllById(Collection<Integer> messageIds) {
+        if (messageIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return client.sql("select " + COLUMNS + " from message where messageId in (:messageIds)")
+                .bind("messageIds", messageIds)
+                .map(MESSAGE)
+                .all();
+    }
+
+    public Flux<Message> findByPostedByNewestFirst(int postedBy) {
+        return client.sql("select " + COLUMNS + " from message where postedBy = :postedBy " +
+                        "order by timePostedEpoch desc nulls last, messageId desc")
+                .bind("postedBy", postedBy)
+                .map(MESSAGE)
+                .all();
+    }
+
+    // keyset page of an author's timeline, same as MessageRepository.findByPostedByBefore
+    public Flux<Message> findByPostedByBefore(int postedBy, long beforeTime, int beforeId, int limit) {
+        return client.sql("select " + COLUMNS + " from message where postedBy = :postedBy " +
+                        "and (timePostedEpoch < :beforeTime or (timePostedEpoch = :beforeTime and messageId < :beforeId) " +
+                        "or timePostedEpoch is null) " +
+                        "order by timePostedEpoch desc nulls last, messageId desc limit :limit")
+                .bind("postedBy", postedBy)
+                .bind("beforeTime", beforeTime)
+                .bind("beforeId", beforeId)
+                .bind("limit", limit)
+                .map(MESSAGE)
+                .all();
+    }
+
+    // same as MessageRepository.findByPostedByWithoutTimeBefore
+    public Flux<Message> findByPostedByWithoutTimeBefore(int postedBy, int beforeId, int limit) {
+        return client.sql("select " + COLUMNS + " from message where postedBy = :postedBy " +
+                        "and timePostedEpoch is null and messageId < :beforeId " +
+                        "order by messageId desc limit :limit")
+                .bind("postedBy", postedBy)
+                .bind("beforeId", beforeId)
+                .bind("limit", limit)
+                .map(MESSAGE)
+                .all();
+    }
+
+    /*
+     * @return Mono<Message> the message with its new id
+     */
+    public Mono<Message> insert(Message message) {
+        return messageIds.nextId().flatMap(messageId -> {
+            DatabaseClient.GenericExecuteSpec insert = client.sql("insert into message (" + COLUMNS + ") " +
+                            "values (:messageId, :postedBy, :messageText, :timePostedEpoch)")
+                    .bind("messageId", messageId)
+                    .bind("postedBy", message.getPostedBy())
+                    .bind("messageText", message.getMessageText());
+            insert = message.getTimePostedEpoch() == null
+                    ? insert.bindNull("timePostedEpoch", Long.class)
+                    : insert.bind("timePostedEpoch", message.getTimePostedEpoch());
+
+            return insert.fetch().rowsUpdated().thenReturn(new Message(messageId, message.getPostedBy(),
+                    message.getMessageText(), message.getTimePostedEpoch()));
+        });
+    }
+
+    // single-statement writes, the returned count tells the caller whether the row existed;
+    // scoped by owner, so someone else's message matches nothing, same as a missing one
+    public Mono<Integer> updateTextByIdAndPostedBy(int messageId, int postedBy, String messageText) {
+        return client.sql("update message set messageText = :messageText where messageId = :messageId and postedBy = :postedBy")
+                .bind("messageId", messageId)
+                .bind("postedBy", postedBy)
+                .bind("messageText", messageText)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Integer> deleteByIdAndPostedBy(int messageId, int postedBy) {
+        return client.sql("delete from message where messageId = :messageId and postedBy = :postedBy")
+                .bind("messageId", messageId)
+                .bind("postedBy", postedBy)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    // unscoped single-statement writes that also return the author, empty if the id is missing,
+    // same as MessageRepository.updateTextByIdReturningPostedBy
+    public Mono<Integer> updateTextByIdReturningPostedBy(int messageId, String messageText) {
+        return client.sql("select postedBy from final table (update message set messageText = :messageText where messageId = :messageId)")
+                .bind("messageId", messageId)
+                .bind("messageText", messageText)
+                .map((row, metadata) -> row.get("postedBy", Integer.class))
+                .one();
+    }
+
+    public Mono<Integer> deleteByIdReturningPostedBy(int messageId) {
+        return client.sql("select postedBy from old table (delete from message where messageId = :messageId)")
+                .bind("messageId", messageId)
+                .map((row, metadata) -> row.get("postedBy", Integer.class))
+                .one();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.repository;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import reactor.core.publisher.Mono;
+
+/*
+ * Ids from one sequence for the reactive stack, in blocks like BlockSequenceGenerator's
+ *
+ * Both stacks read the same sequences and each call reserves a whole block,
+ * so ids from either side never collide.
+ */
+final class ReactiveSequence {
+    private final DatabaseClient client;
+    private final String nextValue;
+    private final int blockSize;
+    private final AtomicReference<IdBlock> block = new AtomicReference<>(IdBlock.EMPTY);
+
+    // blockSize must equal the sequence's increment, see afterMigrate.sql
+    ReactiveSequence(DatabaseClient client, String sequence, int blockSize) {
+        this.client = client;
+        this.nextValue = "select next value for " + sequence;
+        this.blockSize = blockSize;
+    }
+
+    /*
+     * @return Mono<Integer> the next id of the current block, reserving a new block when it runs out
+     */
+    Mono<Integer> nextId() {
+        return Mono.defer(() -> {
+            long id = block.get().take();
+            if (id >= 0) {
+                return Mono.just((int) id);
+            }
+
+            return client.sql(nextValue)
+                    .map((row, metadata) -> row.get(0, Long.class)) // sequences are bigint
+                    .one()
+                    .map(low -> {
+                        // a block reserved concurrently is simply dropped, ids are never reused
+                        IdBlock reserved = new IdBlock(low, blockSize);
+                        long first = reserved.take();
+                        block.set(reserved);
+                        return (int) first;
+                    });
+        });
+    }
+}
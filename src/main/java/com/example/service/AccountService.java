@@ -1,58 +1,194 @@
 package com.example.service;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
+import javax.annotation.PreDestroy;
+
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.entity.Account;
+import com.example.exception.ServiceOverloadedException;
+import com.example.exception.UsernameTakenException;
+import com.example.repository.AccountCredentials;
 import com.example.repository.AccountRepository;
+import com.example.util.BloomFilter;
+import com.example.util.ConcurrentIntBitSet;
 
 @Service
 public class AccountService {
+    // the unique constraint on account.username, named by the V7 migration
+    static final String USERNAME_CONSTRAINT = "uk_account_username";
+    // the width of account.username
+    static final int MAX_USERNAME_LENGTH = 255;
+
     private final AccountRepository repository;
+    private final PasswordHasher passwordHasher;
+    // runs the JDBC work that follows a hash, so hasher threads never wait on the database;
+    // one thread per pooled connection and a bounded queue, like the hasher pool
+    private final ThreadPoolExecutor accountWrites;
+    private final Executor afterHashing;
+    private final BloomFilter takenUsernames;
+    private volatile boolean takenUsernamesLoaded = false;
+    // accounts are never deleted, so an id seen once stays valid for good
+    private final ConcurrentIntBitSet knownAccountIds = new ConcurrentIntBitSet();
 
+    /*
+     * @param writeThreads account writes at once after hashing, the JDBC pool size by default
+     * @param writeQueueCapacity how many may wait before new ones are refused with 503
+     */
     @Autowired
-    public AccountService(AccountRepository repository) {
+    public AccountService(AccountRepository repository, PasswordHasher passwordHasher, TaskDecorator taskDecorator,
+                          @Value("${app.accounts.write-threads:${spring.datasource.hikari.maximum-pool-size:10}}") int writeThreads,
+                          @Value("${app.accounts.write-queue-capacity:64}") int writeQueueCapacity,
+                          @Value("${app.accounts.username-filter.expected-usernames:1000000}") long expectedUsernames) {
+        CustomizableThreadFactory threads = new CustomizableThreadFactory("account-writes-");
+        threads.setDaemon(true);
+
         this.repository = repository;
+        this.passwordHasher = passwordHasher;
+        this.accountWrites = new ThreadPoolExecutor(writeThreads, writeThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(writeQueueCapacity), threads, new ThreadPoolExecutor.AbortPolicy());
+        this.afterHashing = task -> {
+            try {
+                accountWrites.execute(taskDecorator.decorate(task));
+            } catch (RejectedExecutionException e) {
+                throw new ServiceOverloadedException("account writes are saturated", e);
+            }
+        };
+        this.takenUsernames = new BloomFilter(expectedUsernames, 0.01);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        accountWrites.shutdown();
+    }
+
+    /*
+     * Loads every existing username into the taken-username filter and every
+     * account id into the known-account set
+     *
+     * Until this has run, availability checks always go to the database;
+     * existence checks work throughout and just hit the database more.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        try (Stream<String> usernames = repository.streamAllUsernames()) {
+            usernames.forEach(takenUsernames::put);
+        }
+        takenUsernamesLoaded = true;
+
+        try (Stream<Integer> ids = repository.streamAllIds()) {
+            ids.forEach(knownAccountIds::add);
+        }
     }
 
     /*
      * Add a new account to the data store
      * @param newAccount the new account to store
-     * @return Optional account if persisted to data store
+     * @return CompletableFuture the account if persisted to data store, completed once it is stored
+     * throws ServiceOverloadedException if password hashing or account writes are saturated
      * 
-     * username cannot be blank.
+     * username cannot be blank or longer than 255 characters.
      * password cannot be blank, must be at least 4 characters
+     * completes with UsernameTakenException if the username is already registered
+     *
+     * A single INSERT: the unique constraint on username does the availability check.
+     * The password is hashed on the hasher pool and the insert runs on afterHashing,
+     * so no request thread waits for either.
      */
-    public Optional<Account> registerNewAccountFor(Account newAccount) {
+    public CompletableFuture<Optional<Account>> registerNewAccountFor(Account newAccount) {
         if (newAccount == null) {
             throw new IllegalArgumentException("Account object expected, no null values.");
         }
 
         // check service rules
         if (!isValidUsername(newAccount.getUsername()) ||
-        !isValidPassword(newAccount.getPassword()) ||
-        !usernameAvailable(newAccount.getUsername())) {
-            return Optional.empty();
+        !isValidPassword(newAccount.getPassword())) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+
+        String rawPassword = newAccount.getPassword();
+
+        return passwordHasher.encode(rawPassword).thenApplyAsync(passwordHash -> {
+            // Id ignored if present
+            newAccount.setAccountId(null); // should not be present
+            newAccount.setPassword(passwordHash);
+            Account registeredAccount;
+
+            try {
+                registeredAccount = repository.saveAndFlush(newAccount);
+            } catch (DataIntegrityViolationException e) {
+                // anything else (too long, NOT NULL, ...) is left to the DataAccessException handler
+                if (isUsernameTaken(e)) {
+                    throw new UsernameTakenException(newAccount.getUsername(), e);
+                }
+                throw e;
+            }
+
+            takenUsernames.put(registeredAccount.getUsername());
+            knownAccountIds.add(registeredAccount.getAccountId());
+
+            // never hand the stored hash back to the client
+            return Optional.of(new Account(registeredAccount.getAccountId(), registeredAccount.getUsername(), rawPassword));
+        }, afterHashing);
+    }
+
+    /*
+     * Checks whether a username can still be registered
+     * @param username the username to check
+     * @return boolean True if no account uses the username
+     *
+     * Usernames the filter has never seen are answered without a query.
+     * The answer is advisory; registration itself is decided by the database.
+     */
+    public boolean isUsernameAvailable(String username) {
+        if (!isValidUsername(username)) {
+            return false;
         }
 
-        // we can assume its safe to register by now - Id ignored if present
-        newAccount.setAccountId(null); // should not be present
-        Account registeredAccount = repository.save(newAccount);
+        if (takenUsernamesLoaded && !takenUsernames.mightContain(username)) {
+            return true;
+        }
 
-        return Optional.of(registeredAccount);
+        return !repository.existsByUsername(username);
     }
 
     /*
-     * Returns account if in data store
+     * Returns account if in data store and the password matches
      * @param account the account to look for
-     * @return Optional the account if present
+     * @return CompletableFuture the account if present, completed once the hash is checked
+     * throws ServiceOverloadedException if password hashing or account writes are saturated
      * 
      * username cannot be blank.
      * password cannot be blank, must be at least 4 characters     
+     *
+     * A password stored as plaintext or with an outdated hash is re-hashed
+     * and saved on success; the save runs on afterHashing. An unknown
+     * username is checked against a dummy hash first, so it answers no
+     * faster than a wrong password.
      */
-    public Optional<Account> verifyAccountExistsFor(Account account) {
+    public CompletableFuture<Optional<Account>> verifyAccountExistsFor(Account account) {
         if (account == null) {
             throw new IllegalArgumentException("Account object expected, no null values");
         }
@@ -60,13 +196,36 @@ public class AccountService {
         // check service rules
         if (!isValidUsername(account.getUsername()) ||
         !isValidPassword(account.getPassword())) {
-            return Optional.empty();
+            return CompletableFuture.completedFuture(Optional.empty());
         }
 
-        // username and password should match data store
-        Account foundAccount = repository.findByUsernameAndPassword(account.getUsername(), account.getPassword());
+        AccountCredentials foundAccount = repository.findCredentialsByUsername(account.getUsername());
 
-        return Optional.ofNullable(foundAccount);
+        if (foundAccount == null) {
+            return passwordHasher.verifyUnknown(account.getPassword()).thenApply(nothing -> Optional.empty());
+        }
+
+        String storedPassword = foundAccount.getPassword();
+        String rawPassword = account.getPassword();
+
+        Account verifiedAccount = new Account(foundAccount.getAccountId(), foundAccount.getUsername(), rawPassword);
+
+        return passwordHasher.verify(rawPassword, storedPassword).thenCompose(currentPassword -> {
+            if (currentPassword == null) {
+                return CompletableFuture.completedFuture(Optional.<Account>empty());
+            }
+
+            // never hand the stored hash back to the client
+            if (currentPassword.equals(storedPassword)) {
+                return CompletableFuture.completedFuture(Optional.of(verifiedAccount));
+            }
+
+            // the re-hash write waits on JDBC, so it leaves the hasher pool
+            return CompletableFuture.supplyAsync(() -> {
+                repository.updatePassword(foundAccount.getAccountId(), storedPassword, currentPassword);
+                return Optional.of(verifiedAccount);
+            }, afterHashing);
+        });
     }
 
     /*
@@ -74,6 +233,7 @@ public class AccountService {
      * @param username the username to look for
      * @return Optional the account if present
      */
+    @Transactional(readOnly = true)
     public Optional<Account> findAccountByUsername(String username) {
         if (username == null) {
             throw new IllegalArgumentException("username cannot be null");
@@ -86,11 +246,68 @@ public class AccountService {
      * @param id the user id
      * @return Optional the account if present
      */
+    @Transactional(readOnly = true)
     public Optional<Account> findAccountById(Integer id) {
         if (id == null) {
             throw new IllegalArgumentException("id cannot be null");
         }
-        return repository.findById(id);
+
+        Optional<Account> account = repository.findById(id);
+        account.ifPresent(found -> knownAccountIds.add(found.getAccountId()));
+        return account;
+    }
+
+    /*
+     * Check that an account exists
+     * @param id the user id
+     * @return boolean True if an account has this id
+     *
+     * Ids already seen are answered from memory; only unknown ids are queried.
+     */
+    public boolean accountExists(Integer id) {
+        if (id == null || id < 0) {
+            return false;
+        }
+
+        if (knownAccountIds.contains(id)) {
+            return true;
+        }
+
+        if (repository.existsById(id)) {
+            knownAccountIds.add(id);
+            return true;
+        }
+        return false;
+    }
+
+    /*
+     * Find which of the given account ids exist, in at most one query
+     * @param ids the user ids to check
+     * @return Set the ids that belong to an account
+     */
+    public Set<Integer> findExistingAccountIds(Collection<Integer> ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("ids cannot be null");
+        }
+
+        Set<Integer> existing = new HashSet<>();
+        Set<Integer> unknown = new HashSet<>();
+
+        for (Integer id : ids) {
+            if (id != null && knownAccountIds.contains(id)) {
+                existing.add(id);
+            } else if (id != null && id >= 0) {
+                unknown.add(id);
+            }
+        }
+
+        if (!unknown.isEmpty()) {
+            for (Integer id : repository.findExistingIds(unknown)) {
+                knownAccountIds.add(id);
+                existing.add(id);
+            }
+        }
+        return existing;
     }
 
     /*
@@ -98,7 +315,7 @@ public class AccountService {
      * @param password the password to check
      * @return boolean True if service rules are met
      */
-    private boolean isValidPassword(String password) {
+    static boolean isValidPassword(String password) {
         return password != null && password.length() > 3;
 
     }
@@ -107,15 +324,25 @@ public class AccountService {
      * @param username the username to check
      * @return boolean True if service rules are met
      */
-    private boolean isValidUsername(String username) {
-        return username != null && username.length() > 0;
+    static boolean isValidUsername(String username) {
+        return username != null && username.length() > 0 && username.length() <= MAX_USERNAME_LENGTH;
     }
 
     /*
-     * Helper
+     * Checks if a failed account insert lost to the unique constraint on username
+     * @param e the insert's exception
+     * @return boolean True if Hibernate reports USERNAME_CONSTRAINT as the violated constraint
+     *
+     * H2 reports the constraint's index, named after it, so the name is matched as a prefix.
      */
-    private boolean usernameAvailable(String username) {
-        return repository.findByUsername(username) == null;
+    static boolean isUsernameTaken(DataIntegrityViolationException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraint = ((ConstraintViolationException) cause).getConstraintName();
+                return constraint != null && constraint.toLowerCase(Locale.ROOT).contains(USERNAME_CONSTRAINT);
+            }
+        }
+        return false;
     }
 
 }
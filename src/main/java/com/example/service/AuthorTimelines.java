@@ -0,0 +1,310 @@
+package com.example.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.entity.Message;
+import com.example.repository.MessageRepository;
+import com.example.repository.MessageRows;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/*
+ * The newest messages of recently read authors, kept in memory newest first
+ *
+ * Each timeline holds up to app.timeline.capacity messages and is loaded
+ * on the first read of that author, then kept current by the MessageEvent
+ * of every committed write instead of being reloaded. It always holds the
+ * newest messages of the author with none missing in between, so any page
+ * that lies within it is served without a query; pages reaching past its
+ * end go to the database. Like the database, a timeline orders messages
+ * without a time after all the others. At most app.timeline.max-authors
+ * timelines are kept, the least used ones are dropped first. A capacity of
+ * 0 turns the timelines off. Writes that bypass MessageService are not seen.
+ */
+@Component
+public class AuthorTimelines {
+    private static final int GENERATION_STRIPES = 4096;
+    // held for a message without a time, so it sorts after every real time, newest first
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final MessageRepository repository;
+    private final int capacity;
+    private final Cache<Integer, Timeline> timelines;
+
+    // bumped by every write to an author, so a load that raced with a write is not kept
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    @Autowired
+    public AuthorTimelines(MessageRepository repository,
+                           @Value("${app.timeline.capacity:200}") int capacity,
+                           @Value("${app.timeline.max-authors:10000}") long maxAuthors) {
+        this.repository = repository;
+        this.capacity = capacity;
+        this.timelines = Caffeine.newBuilder()
+                .maximumSize(maxAuthors)
+                .build();
+    }
+
+    /*
+     * All of an author's messages, newest first
+     * @param postedBy the author
+     * @return List<Message> the messages, from memory if the timeline holds all of them
+     */
+    public List<Message> allOf(int postedBy) {
+        Timeline timeline = timelineOf(postedBy);
+        if (timeline != null && timeline.complete) {
+            return timeline.page(Long.MAX_VALUE, Integer.MAX_VALUE, timeline.entries.length);
+        }
+        return repository.findByPostedByOrderByTimePostedEpochDescMessageIdDesc(postedBy);
+    }
+
+    /*
+     * Hands all of an author's messages to the handler, newest first, if the timeline holds all of them
+     * @param postedBy the author
+     * @param handler receives each message as a reused row
+     * @return boolean false, having handed over nothing, if the database has to be read instead
+     */
+    public boolean forEachOf(int postedBy, MessageRows.Handler handler) throws IOException {
+        Timeline timeline = timelineOf(postedBy);
+        if (timeline == null || !timeline.complete) {
+            return false;
+        }
+
+        MessageRows.Row row = new MessageRows.Row();
+        for (Entry entry : timeline.entries) {
+            handler.accept(row.set(entry.messageId, postedBy, entry.messageText, entry.time()));
+        }
+        return true;
+    }
+
+    /*
+     * One page of an author's messages, newest first
+     * @param postedBy the author
+     * @param beforeTime timePostedEpoch of the last message already seen, null if it had none
+     * @param beforeMessageId id of the last message already seen
+     * @param limit the maximum number of messages
+     * @return List<Message> the messages ordered after the one already seen
+     */
+    public List<Message> pageOf(int postedBy, Long beforeTime, int beforeMessageId, int limit) {
+        Timeline timeline = timelineOf(postedBy);
+        if (timeline != null) {
+            List<Message> page = timeline.page(beforeTime == null ? NO_TIME : beforeTime, beforeMessageId, limit);
+            if (page != null) {
+                return page;
+            }
+        }
+        if (beforeTime == null) {
+            return repository.findByPostedByWithoutTimeBefore(postedBy, beforeMessageId, PageRequest.of(0, limit));
+        }
+        return repository.findByPostedByBefore(postedBy, beforeTime, beforeMessageId, PageRequest.of(0, limit));
+    }
+
+    // ahead of MessageVersions, so a client never pairs a new ETag with an old timeline
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        Integer postedBy = event.getPostedBy();
+        if (postedBy == null) {
+            return;
+        }
+
+        generations.incrementAndGet(stripe(postedBy));
+        timelines.asMap().computeIfPresent(postedBy, (author, timeline) -> timeline.apply(event));
+    }
+
+    /*
+     * Helpers
+     */
+    private Timeline timelineOf(int postedBy) {
+        if (capacity < 1) {
+            return null;
+        }
+
+        Timeline timeline = timelines.getIfPresent(postedBy);
+        if (timeline != null) {
+            return timeline;
+        }
+
+        long generation = generations.get(stripe(postedBy));
+        Timeline loaded = Timeline.of(postedBy, capacity, repository.findByPostedByOrderByTimePostedEpochDescMessageIdDesc(
+                postedBy, PageRequest.of(0, capacity + 1)));
+
+        // still fine to answer this read from, but only kept if no write came in meanwhile
+        timelines.asMap().compute(postedBy, (author, current) -> current != null ? current
+                : generations.get(stripe(postedBy)) == generation ? loaded : null);
+        return loaded;
+    }
+
+    private static int stripe(int id) {
+        return (id ^ (id >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    // newest first: later time, then higher id on equal times, the same order as the database query
+    private static int compare(long timeA, int idA, long timeB, int idB) {
+        return timeA != timeB ? Long.compare(timeB, timeA) : Integer.compare(idB, idA);
+    }
+
+    private static final class Entry {
+        final int messageId;
+        final long timePostedEpoch;
+        final String messageText;
+
+        Entry(int messageId, Long timePostedEpoch, String messageText) {
+            this.messageId = messageId;
+            this.timePostedEpoch = timePostedEpoch == null ? NO_TIME : timePostedEpoch;
+            this.messageText = messageText;
+        }
+
+        Long time() {
+            return timePostedEpoch == NO_TIME ? null : timePostedEpoch;
+        }
+    }
+
+    /*
+     * An immutable snapshot; writes build a new one, so reads need no lock
+     *
+     * complete means the author has no messages beyond these entries.
+     */
+    private static final class Timeline {
+        final int postedBy;
+        final int capacity;
+        final Entry[] entries;
+        final boolean complete;
+
+        Timeline(int postedBy, int capacity, Entry[] entries, boolean complete) {
+            this.postedBy = postedBy;
+            this.capacity = capacity;
+            this.entries = entries;
+            this.complete = complete;
+        }
+
+        static Timeline of(int postedBy, int capacity, List<Message> newest) {
+            int size = Math.min(newest.size(), capacity);
+            Entry[] entries = new Entry[size];
+            for (int i = 0; i < size; i++) {
+                Message message = newest.get(i);
+                entries[i] = new Entry(message.getMessageId(), message.getTimePostedEpoch(), message.getMessageText());
+            }
+            return new Timeline(postedBy, capacity, entries, newest.size() <= capacity);
+        }
+
+        // null if the page reaches past the entries of an incomplete timeline
+        List<Message> page(long beforeTime, int beforeMessageId, int limit) {
+            int start = firstAfter(beforeTime, beforeMessageId);
+            int end = (int) Math.min((long) start + limit, entries.length);
+
+            if (end - start < limit && !complete) {
+                return null;
+            }
+
+            List<Message> page = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                Entry entry = entries[i];
+                page.add(new Message(entry.messageId, postedBy, entry.messageText, entry.time()));
+            }
+            return page;
+        }
+
+        // events may arrive for changes a fresh load already saw, so each one is applied idempotently
+        Timeline apply(MessageEvent event) {
+            int index = indexOf(event.getMessageId());
+
+            switch (event.getType()) {
+                case CREATED:
+                    return created(index, event);
+                case UPDATED:
+                    if (index < 0) {
+                        return this;
+                    }
+                    Entry[] updated = entries.clone();
+                    updated[index] = new Entry(entries[index].messageId, entries[index].time(),
+                            event.getMessageText());
+                    return new Timeline(postedBy, capacity, updated, complete);
+                case DELETED:
+                    if (index < 0) {
+                        return this;
+                    }
+                    Entry[] remaining = without(index);
+                    // nothing left to serve from, the next read loads afresh
+                    return remaining.length == 0 && !complete ? null
+                            : new Timeline(postedBy, capacity, remaining, complete);
+                default:
+                    return this;
+            }
+        }
+
+        private Timeline created(int index, MessageEvent event) {
+            Entry entry = new Entry(event.getMessageId(), event.getTimePostedEpoch(), event.getMessageText());
+            Entry[] base = index < 0 ? entries : without(index);
+
+            int position = -1 - binarySearch(base, entry.timePostedEpoch, entry.messageId);
+            if (position == base.length && !complete) {
+                return this; // older than everything held, still only in the database
+            }
+
+            Entry[] grown = new Entry[base.length + 1];
+            System.arraycopy(base, 0, grown, 0, position);
+            grown[position] = entry;
+            System.arraycopy(base, position, grown, position + 1, base.length - position);
+
+            if (grown.length > capacity) {
+                return new Timeline(postedBy, capacity, Arrays.copyOf(grown, capacity), false);
+            }
+            return new Timeline(postedBy, capacity, grown, complete);
+        }
+
+        private int firstAfter(long beforeTime, int beforeMessageId) {
+            int found = binarySearch(entries, beforeTime, beforeMessageId);
+            return found >= 0 ? found + 1 : -1 - found;
+        }
+
+        private int indexOf(Integer messageId) {
+            if (messageId == null) {
+                return -1;
+            }
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].messageId == messageId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private Entry[] without(int index) {
+            Entry[] smaller = new Entry[entries.length - 1];
+            System.arraycopy(entries, 0, smaller, 0, index);
+            System.arraycopy(entries, index + 1, smaller, index, entries.length - index - 1);
+            return smaller;
+        }
+
+        // Arrays.binarySearch contract: the index if present, else -(insertion point) - 1
+        private static int binarySearch(Entry[] entries, long time, int messageId) {
+            int low = 0;
+            int high = entries.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int order = compare(entries[mid].timePostedEpoch, entries[mid].messageId, time, messageId);
+                if (order < 0) {
+                    low = mid + 1;
+                } else if (order > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1 - low;
+        }
+    }
+}
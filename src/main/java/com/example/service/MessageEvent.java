@@ -0,0 +1,86 @@
+package com.example.service;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/*
+ * A committed change to one message, published after every successful write
+ *
+ * CREATED carries the whole message, UPDATED the new text, DELETED only the
+ * ids. RESYNC is never published; the feed sends it to a subscriber that had
+ * events dropped, meaning "refetch what you show".
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MessageEvent {
+    public enum Type { CREATED, UPDATED, DELETED, RESYNC }
+
+    private static final MessageEvent RESYNC = new MessageEvent(Type.RESYNC, null, null, null, null);
+
+    private final Type type;
+    private final Integer messageId;
+    private final Integer postedBy;
+    private final String messageText;
+    private final Long timePostedEpoch;
+
+    private MessageEvent(Type type, Integer messageId, Integer postedBy, String messageText, Long timePostedEpoch) {
+        this.type = type;
+        this.messageId = messageId;
+        this.postedBy = postedBy;
+        this.messageText = messageText;
+        this.timePostedEpoch = timePostedEpoch;
+    }
+
+    public static MessageEvent created(Message message) {
+        return new MessageEvent(Type.CREATED, message.getMessageId(), message.getPostedBy(),
+                message.getMessageText(), message.getTimePostedEpoch());
+    }
+
+    public static MessageEvent updated(Integer messageId, Integer postedBy, String messageText) {
+        return new MessageEvent(Type.UPDATED, messageId, postedBy, messageText, null);
+    }
+
+    public static MessageEvent deleted(Integer messageId, Integer postedBy) {
+        return new MessageEvent(Type.DELETED, messageId, postedBy, null, null);
+    }
+
+    public static MessageEvent resync() {
+        return RESYNC;
+    }
+
+    /*
+     * Fold a newer event for the same message into a pending one
+     * @return MessageEvent the single event that brings a subscriber to the same
+     * state, or null if the two cancel out (created, then deleted before delivery)
+     */
+    MessageEvent coalesce(MessageEvent next) {
+        if (type == Type.CREATED) {
+            if (next.type == Type.DELETED) {
+                return null;
+            }
+            if (next.type == Type.UPDATED) {
+                return new MessageEvent(Type.CREATED, messageId, postedBy, next.messageText, timePostedEpoch);
+            }
+        }
+        return next;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Integer getMessageId() {
+        return messageId;
+    }
+
+    public Integer getPostedBy() {
+        return postedBy;
+    }
+
+    public String getMessageText() {
+        return messageText;
+    }
+
+    public Long getTimePostedEpoch() {
+        return timePostedEpoch;
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/*
+ * In-process fan-out of MessageEvents to push subscribers (GET /messages/stream)
+ *
+ * Writers never wait on subscribers: an event is only filed into each
+ * matching subscriber's buffer, and a small dispatch pool does the sending.
+ * Each buffer is bounded and keyed by message id, so a slow consumer gets
+ * repeated changes to one message coalesced into one event. When a buffer is
+ * still full the oldest event is dropped and the subscriber is sent RESYNC
+ * before anything else.
+ */
+@Component
+public class MessageFeed {
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService dispatcher;
+    private final int bufferSize;
+
+    /*
+     * @param bufferSize pending events kept per subscriber before dropping
+     * @param dispatchThreads threads writing to subscribers
+     */
+    @Autowired
+    public MessageFeed(@Value("${app.feed.buffer-size:256}") int bufferSize,
+                       @Value("${app.feed.dispatch-threads:2}") int dispatchThreads) {
+        if (bufferSize < 1 || dispatchThreads < 1) {
+            throw new IllegalArgumentException("feed buffer size and dispatch threads must be positive");
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        this.bufferSize = bufferSize;
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "message-feed-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+     * Receives every event from a consumer
+     */
+    public interface Sink {
+        /*
+         * @return boolean false if the consumer cannot take it yet; the event
+         * stays buffered until Subscription.resume() is called
+         * throws Exception if the consumer is gone, which cancels the subscription
+         */
+        boolean offer(MessageEvent event) throws Exception;
+    }
+
+    /*
+     * Start receiving events
+     * @param postedBy only events for this author, null for all
+     * @param sink where events are delivered, always from a dispatch thread
+     * @return Subscription cancel it when the consumer goes away
+     */
+    public Subscription subscribe(Integer postedBy, Sink sink) {
+        if (sink == null) {
+            throw new IllegalArgumentException("sink cannot be null");
+        }
+
+        Subscription subscription = new Subscription(postedBy, sink);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    // after commit when published inside a transaction, so nobody hears about rolled back writes
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.accepts(event) && subscription.enqueue(event)) {
+                schedule(subscription);
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.forEach(Subscription::cancel);
+        dispatcher.shutdownNow();
+    }
+
+    /*
+     * Helper, at most one drain per subscriber is queued or running at a time
+     */
+    private void schedule(Subscription subscription) {
+        if (subscription.draining.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscription));
+        }
+    }
+
+    /*
+     * Helper, sends buffered events until the buffer is empty or the sink is not ready
+     */
+    private void drain(Subscription subscription) {
+        boolean stalled = false;
+
+        try {
+            MessageEvent next;
+            while (!subscription.cancelled && (next = subscription.peek()) != null) {
+                if (!subscription.sink.offer(next)) {
+                    subscription.declined();
+                    stalled = true;
+                    break;
+                }
+                subscription.delivered(next);
+            }
+        } catch (Exception e) {
+            subscription.cancel();
+        } finally {
+            subscription.draining.set(false);
+        }
+
+        // an event may have arrived between the last peek and clearing the flag
+        if (!stalled && !subscription.cancelled && subscription.hasPending()) {
+            schedule(subscription);
+        }
+    }
+
+    public final class Subscription {
+        private final Integer postedBy;
+        private final Sink sink;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final Map<Integer, MessageEvent> pending = new LinkedHashMap<>();
+        private MessageEvent inFlight;
+        private boolean lagged;
+        private volatile boolean cancelled;
+
+        private Subscription(Integer postedBy, Sink sink) {
+            this.postedBy = postedBy;
+            this.sink = sink;
+        }
+
+        /*
+         * Try delivering again after the sink turned an event down
+         */
+        public void resume() {
+            if (!cancelled && hasPending()) {
+                schedule(this);
+            }
+        }
+
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        private boolean accepts(MessageEvent event) {
+            return postedBy == null || postedBy.equals(event.getPostedBy());
+        }
+
+        /*
+         * @return boolean true if something is now waiting to be sent
+         */
+        private synchronized boolean enqueue(MessageEvent event) {
+            Integer messageId = event.getMessageId();
+            MessageEvent previous = pending.remove(messageId);
+
+            // one already being sent is superseded, not merged: the subscriber will have seen it
+            if (previous != null && previous != inFlight) {
+                event = previous.coalesce(event);
+                if (event == null) {
+                    return !pending.isEmpty();
+                }
+            } else if (pending.size() >= bufferSize) {
+                Iterator<MessageEvent> oldest = pending.values().iterator();
+                oldest.next();
+                oldest.remove();
+                lagged = true;
+            }
+
+            pending.put(messageId, event);
+            return true;
+        }
+
+        private synchronized MessageEvent peek() {
+            if (lagged) {
+                return MessageEvent.resync();
+            }
+            Iterator<MessageEvent> first = pending.values().iterator();
+            inFlight = first.hasNext() ? first.next() : null;
+            return inFlight;
+        }
+
+        private synchronized void delivered(MessageEvent event) {
+            inFlight = null;
+            if (event.getType() == MessageEvent.Type.RESYNC) {
+                lagged = false;
+            } else {
+                // unless a newer event for the same message replaced it meanwhile
+                pending.remove(event.getMessageId(), event);
+            }
+        }
+
+        private synchronized void declined() {
+            inFlight = null;
+        }
+
+        private synchronized boolean hasPending() {
+            return lagged || !pending.isEmpty();
+        }
+    }
+}
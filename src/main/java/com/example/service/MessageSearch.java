@@ -0,0 +1,178 @@
+package com.example.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.entity.Message;
+import com.example.repository.MessageRepository;
+
+/*
+ * An in-process Lucene index over message text
+ *
+ * The index lives in memory and is rebuilt from the database at startup,
+ * then kept current by the MessageEvent of every committed write. Searches
+ * see a write within app.search.max-stale-millis. Only ids are kept in the
+ * index; callers load the messages themselves. Writes that bypass
+ * MessageService are not seen until the next restart.
+ */
+@Component
+public class MessageSearch {
+    // deepest hit a search may reach, offset + limit
+    public static final int MAX_WINDOW = 10_000;
+
+    private static final String ID = "messageId";
+    private static final String TEXT = "messageText";
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+
+    // best match first, newest message first among equal scores
+    private static final Sort RANKING = new Sort(SortField.FIELD_SCORE, new SortField(ID, SortField.Type.INT, true));
+
+    private final MessageRepository repository;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searchers;
+    private final ControlledRealTimeReopenThread<IndexSearcher> reopener;
+
+    @Autowired
+    public MessageSearch(MessageRepository repository,
+                         @Value("${app.search.max-stale-millis:1000}") long maxStaleMillis) throws IOException {
+        this.repository = repository;
+        this.writer = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(analyzer));
+        this.searchers = new SearcherManager(writer, null);
+        this.reopener = new ControlledRealTimeReopenThread<>(writer, searchers, maxStaleMillis / 1000.0, 0.025);
+        this.reopener.setName("message-search-reopen");
+        this.reopener.setDaemon(true);
+    }
+
+    /*
+     * Index every message, reading the table in keyset pages so the
+     * persistence context never holds more than one of them
+     */
+    @PostConstruct
+    public void rebuild() throws IOException {
+        writer.deleteAll();
+
+        List<Message> chunk = repository.findByMessageIdGreaterThanOrderByMessageIdAsc(0, PageRequest.of(0, REBUILD_CHUNK_SIZE));
+        while (!chunk.isEmpty()) {
+            for (Message message : chunk) {
+                writer.addDocument(document(message.getMessageId(), message.getMessageText()));
+            }
+            int last = chunk.get(chunk.size() - 1).getMessageId();
+            chunk = repository.findByMessageIdGreaterThanOrderByMessageIdAsc(last, PageRequest.of(0, REBUILD_CHUNK_SIZE));
+        }
+
+        searchers.maybeRefreshBlocking();
+        reopener.start();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        reopener.close();
+        searchers.close();
+        writer.close();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        if (event.getMessageId() == null) {
+            return;
+        }
+
+        Term id = new Term(ID, event.getMessageId().toString());
+        try {
+            switch (event.getType()) {
+                case CREATED:
+                case UPDATED:
+                    writer.updateDocument(id, document(event.getMessageId(), event.getMessageText()));
+                    break;
+                case DELETED:
+                    writer.deleteDocuments(id);
+                    break;
+                default:
+                    break;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * Ids of the messages matching a query, best match first
+     * @param queryText words to match, all of them by default; supports "phrases", -exclusion, prefix* and a|b
+     * @param offset the number of hits to skip
+     * @param limit the maximum number of ids
+     * @return List<Integer> the matching message ids
+     */
+    public List<Integer> search(String queryText, int offset, int limit) {
+        if (queryText == null) {
+            throw new IllegalArgumentException("queryText cannot be null");
+        }
+        if (offset < 0 || limit < 1 || offset + limit > MAX_WINDOW) {
+            throw new IllegalArgumentException("offset + limit must be within " + MAX_WINDOW);
+        }
+
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, TEXT);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query query = parser.parse(queryText);
+
+        try {
+            IndexSearcher searcher = searchers.acquire();
+            try {
+                ScoreDoc[] hits = searcher.search(query, offset + limit, RANKING).scoreDocs;
+
+                List<Integer> ids = new ArrayList<>(Math.max(hits.length - offset, 0));
+                for (int i = offset; i < hits.length; i++) {
+                    ids.add((Integer) ((FieldDoc) hits[i]).fields[1]);
+                }
+                return ids;
+            } finally {
+                searchers.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * Helper
+     */
+    private static Document document(int messageId, String messageText) {
+        Document document = new Document();
+        document.add(new StringField(ID, Integer.toString(messageId), Field.Store.NO));
+        document.add(new NumericDocValuesField(ID, messageId));
+        document.add(new TextField(TEXT, messageText == null ? "" : messageText, Field.Store.NO));
+        return document;
+    }
+}
@@ -1,23 +1,65 @@
 package com.example.service;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.repository.MessageRepository;
+import com.example.repository.MessageRows;
 
 import com.example.entity.Message;
+import com.example.util.LogSampler;
 
 @Service
+@CacheConfig(cacheNames = "messages")
 public class MessageService {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(MessageService.class);
+
     private final MessageRepository repository;
+    private final ApplicationEventPublisher events;
+    private final AuthorTimelines timelines;
+    private final MessageSearch search;
+    private final MessageRows rows;
+    private final LogSampler rejectedWrites;
 
+    /*
+     * Every successful write publishes a MessageEvent; listeners inside a
+     * transaction only hear about it once it commits. AuthorTimelines and
+     * MessageSearch are two of them. MessageRows is absent when messages are
+     * not kept in the message table. Rejected writes are logged at debug,
+     * one in every app.logging.debug-sample-every.
+     */
     @Autowired
-    public MessageService(MessageRepository repository) {
+    public MessageService(MessageRepository repository, ApplicationEventPublisher events, AuthorTimelines timelines,
+                          MessageSearch search, Optional<MessageRows> rows,
+                          @Value("${app.logging.debug-sample-every:100}") int debugSampleEvery) {
         this.repository = repository;
+        this.events = events;
+        this.timelines = timelines;
+        this.search = search;
+        this.rows = rows.orElse(null);
+        this.rejectedWrites = new LogSampler(debugSampleEvery);
     }
 
     /*
@@ -31,29 +73,150 @@ public class MessageService {
         }
 
         if (!isValidMessageText(newMessage.getMessageText())) {
+            logRejectedText("create", newMessage);
             return Optional.empty();
         }
 
         // new message should be valid by this point
         newMessage.setMessageId(null); // no id should be present
         Message savedMessage = repository.save(newMessage);
+        events.publishEvent(MessageEvent.created(savedMessage));
 
         return Optional.of(savedMessage);
     }
 
+    /*
+     * Add a batch of new messages to the database in one transaction
+     * @param newMessages the messages to add
+     * @param knownAuthors the postedBy ids already confirmed to exist
+     * @return List<Optional<Message>> one entry per input, empty if rejected
+     *
+     * Accepted messages are inserted together so Hibernate can send them as
+     * JDBC batches.
+     */
+    @Transactional
+    public List<Optional<Message>> createMessages(List<Message> newMessages, Set<Integer> knownAuthors) {
+        if (newMessages == null || knownAuthors == null) {
+            throw new IllegalArgumentException("newMessages and knownAuthors cannot be null");
+        }
+
+        List<Optional<Message>> results = new ArrayList<>(newMessages.size());
+        List<Message> accepted = new ArrayList<>(newMessages.size());
+
+        for (Message newMessage : newMessages) {
+            if (newMessage == null ||
+            !knownAuthors.contains(newMessage.getPostedBy()) ||
+            !isValidMessageText(newMessage.getMessageText())) {
+                results.add(Optional.empty());
+                continue;
+            }
+
+            newMessage.setMessageId(null); // no id should be present
+            accepted.add(newMessage);
+            results.add(Optional.of(newMessage));
+        }
+
+        repository.saveAll(accepted); // ids are assigned on the same instances
+        accepted.forEach(message -> events.publishEvent(MessageEvent.created(message)));
+
+        return results;
+    }
+
     /*
      * Returns all the messages in the database
-     * @return List<Message> the messages
+     * @return List<Message> the messages, in id order
+     *
+     * Reads here and below are projections, so nothing is left for a flush
+     * to check; readOnly also sets flush mode MANUAL and a read-only
+     * connection. Reads answered from AuthorTimelines stay outside a
+     * transaction so a memory hit never checks out a connection.
      */
+    @Transactional(readOnly = true)
     public List<Message> getAllMessages() {
-        return (ArrayList<Message>) repository.findAll();
+        return repository.findAllOrderByMessageId();
+    }
+
+    /*
+     * Returns one page of messages ordered by id (keyset pagination)
+     * @param after the last message id the caller has seen, 0 for the first page
+     * @param limit the maximum number of messages, 1 to MAX_PAGE_SIZE
+     * @return List<Message> the messages with an id greater than after
+     */
+    @Transactional(readOnly = true)
+    public List<Message> getMessagesAfter(Integer after, int limit) {
+        if (after == null) {
+            throw new IllegalArgumentException("after cannot be null");
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return repository.findByMessageIdGreaterThanOrderByMessageIdAsc(after, PageRequest.of(0, limit));
+    }
+
+    /*
+     * Hands every message to the handler as a reused row, in id order
+     * @param handler receives each row; it must not hold on to it
+     *
+     * Rows come straight off JDBC with no entity in between. Without
+     * MessageRows they are copied from the repository's messages.
+     */
+    public void forEachMessageRow(MessageRows.Handler handler) throws IOException {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler cannot be null");
+        }
+
+        if (rows != null) {
+            rows.forEach(handler);
+            return;
+        }
+
+        // only reached with a store other than the table, whose stream needs no transaction
+        MessageRows.Row row = new MessageRows.Row();
+        try (Stream<Message> messages = repository.streamAll()) {
+            Iterator<Message> iterator = messages.iterator();
+            while (iterator.hasNext()) {
+                handler.accept(row.set(iterator.next()));
+            }
+        }
+    }
+
+    /*
+     * Hands all the messages from a user to the handler as a reused row, newest first
+     * @param id the user id
+     * @param handler receives each row; it must not hold on to it
+     *
+     * From the author's timeline when it holds all of them, else as forEachMessageRow.
+     */
+    public void forEachMessageRowFromUserId(Integer id, MessageRows.Handler handler) throws IOException {
+        if (id == null || handler == null) {
+            throw new IllegalArgumentException("id and handler cannot be null");
+        }
+
+        if (timelines.forEachOf(id, handler)) {
+            return;
+        }
+
+        if (rows != null) {
+            rows.forEachByPostedBy(id, handler);
+            return;
+        }
+
+        MessageRows.Row row = new MessageRows.Row();
+        for (Message message : repository.findByPostedByOrderByTimePostedEpochDescMessageIdDesc(id)) {
+            handler.accept(row.set(message));
+        }
     }
 
     /*
      * Get a message according to the id
      * @param Integer the id
      * @return Optional<Message> if the message is present
+     *
+     * Found messages are cached by id. Misses are never cached, so a newly
+     * created message needs no cache entry to be visible.
      */
+    @Cacheable(key = "#id", unless = "#result == null")
+    @Transactional(readOnly = true)
     public Optional<Message> getMessageById(Integer id) {
         if (id == null) {
             throw new IllegalArgumentException("id cannot be null");
@@ -68,34 +231,52 @@ public class MessageService {
      * 
      * NOTE: Only the message text can be updated
      */
+    @CacheEvict(key = "#modifiedMessage.messageId", condition = "#modifiedMessage?.messageId != null")
     public int updateMessage(Message modifiedMessage) {
+        return updateMessage(modifiedMessage, null);
+    }
+
+    /*
+     * Update the message in the database if it belongs to the given author
+     * @param modifiedMessage the message with details to update
+     * @param authorId the author the message must belong to, null for any author
+     * @return int the number of messages updated (1)
+     * 
+     * NOTE: Only the message text can be updated
+     */
+    @CacheEvict(key = "#modifiedMessage.messageId", condition = "#modifiedMessage?.messageId != null")
+    public int updateMessage(Message modifiedMessage, Integer authorId) {
         if (modifiedMessage == null) {
             throw new IllegalArgumentException("modifiedMessage cannot be null");
         }
 
         if (!isValidMessageText(modifiedMessage.getMessageText())) {
-            System.out.println("failed: " + modifiedMessage.getMessageText());
+            logRejectedText("update", modifiedMessage);
             return 0;
         }
 
         Integer id = modifiedMessage.getMessageId();
 
-        if (id == null || getMessageById(id).isEmpty()) {
+        if (id == null) {
             return 0;
         }
 
-        // modified message should be valid by this point
-        modifiedMessage.setPostedBy(null);               // no need to modify
-        modifiedMessage.setTimePostedEpoch(null); // no need to modify
-        Message updatedMessage = repository.save(modifiedMessage);
+        String messageText = modifiedMessage.getMessageText();
 
-        if (updatedMessage.getMessageText().equals(modifiedMessage.getMessageText())) {
-            System.out.println("message: " + updatedMessage.getMessageText());
-            return 1;
+        // one UPDATE; a missing (or someone else's) row simply matches nothing. Unscoped, the
+        // statement also returns the author, which the event needs
+        Integer postedBy = authorId;
+        if (authorId == null) {
+            postedBy = repository.updateTextByIdReturningPostedBy(id, messageText).orElse(null);
+        } else if (repository.updateTextByIdAndPostedBy(id, authorId, messageText) == 0) {
+            postedBy = null;
         }
-        System.out.println("message: " + updatedMessage.getMessageText());
 
-        return 0;
+        if (postedBy == null) {
+            return 0;
+        }
+        events.publishEvent(MessageEvent.updated(id, postedBy, messageText));
+        return 1;
     }
 
     /*
@@ -103,34 +284,122 @@ public class MessageService {
      * @param id the message id
      * @return int the number of messages deleted (1)
      */
+    @CacheEvict(key = "#id", condition = "#id != null")
     public int deleteMessageById(Integer id) {
+        return deleteMessageById(id, null);
+    }
+
+    /*
+     * Delete a message by its id if it belongs to the given author
+     * @param id the message id
+     * @param authorId the author the message must belong to, null for any author
+     * @return int the number of messages deleted (1)
+     */
+    @CacheEvict(key = "#id", condition = "#id != null")
+    public int deleteMessageById(Integer id, Integer authorId) {
         if (id == null) {
             throw new IllegalArgumentException("id cannot be null");
         }
 
-        if (getMessageById(id).isPresent()) {
-            repository.deleteById(id);
-            return 1;
+        // one DELETE, returning the author when unscoped, as in updateMessage
+        Integer postedBy = authorId;
+        if (authorId == null) {
+            postedBy = repository.deleteByIdReturningPostedBy(id).orElse(null);
+        } else if (repository.deleteByIdAndPostedByReturningCount(id, authorId) == 0) {
+            postedBy = null;
+        }
+
+        if (postedBy == null) {
+            return 0;
         }
-        return 0;
+        events.publishEvent(MessageEvent.deleted(id, postedBy));
+        return 1;
     }
 
     /*
      * Get all the messages from a user according to the user id
      * @param id the user id
-     * @return List<Message> the messages related to the user
+     * @return List<Message> the messages related to the user, newest first
      */
     public List<Message> getMessagesFromUserId(Integer id) {
         if (id == null) {
             throw new IllegalArgumentException("id cannot be null");
         }
-        return (ArrayList<Message>) repository.findByPostedBy(id);
+        return timelines.allOf(id);
+    }
+
+    /*
+     * Get one page of the messages from a user, newest first (keyset pagination)
+     * @param id the user id
+     * @param beforeTime timePostedEpoch of the last message the caller has seen, null if it had none
+     * @param beforeMessageId id of the last message the caller has seen
+     * @param limit the maximum number of messages, 1 to MAX_PAGE_SIZE
+     * @return List<Message> the messages ordered after the one the caller has seen
+     *
+     * Long.MAX_VALUE and Integer.MAX_VALUE as the cursor give the first page.
+     * Messages without a time come after all the others, in descending id order.
+     */
+    public List<Message> getMessagesFromUserIdBefore(Integer id, Long beforeTime, int beforeMessageId, int limit) {
+        if (id == null) {
+            throw new IllegalArgumentException("id cannot be null");
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return timelines.pageOf(id, beforeTime, beforeMessageId, limit);
+    }
+
+    /*
+     * Full-text search over message text
+     * @param query the words to look for, see MessageSearch.search
+     * @param offset the number of matches to skip
+     * @param limit the maximum number of messages
+     * @return List<Message> the matching messages, best match first
+     *
+     * Writes show up in results within app.search.max-stale-millis.
+     */
+    public List<Message> searchMessages(String query, int offset, int limit) {
+        if (query == null) {
+            throw new IllegalArgumentException("query cannot be null");
+        }
+
+        List<Integer> ids = search.search(query, offset, limit);
+
+        Map<Integer, Message> found = new HashMap<>();
+        repository.findAllById(ids).forEach(message -> found.put(message.getMessageId(), message));
+
+        return inRankOrder(ids, found);
+    }
+
+    /*
+     * Helper, shared with ReactiveMessageService; ids deleted since they were indexed are skipped
+     */
+    static List<Message> inRankOrder(List<Integer> ids, Map<Integer, Message> found) {
+        List<Message> ranked = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Message message = found.get(id);
+            if (message != null) {
+                ranked.add(message);
+            }
+        }
+        return ranked;
+    }
+
+    /*
+     * Helper, sampled debug line for a write with invalid text; the text itself is never logged
+     */
+    private void logRejectedText(String operation, Message message) {
+        if (log.isDebugEnabled() && rejectedWrites.sample()) {
+            String text = message.getMessageText();
+            log.debug("event=message_rejected operation={} message_id={} text_length={} sample_every={}",
+                    operation, message.getMessageId(), text == null ? -1 : text.length(), rejectedWrites.every());
+        }
     }
 
     /*
-     * Helper
+     * Helper, shared with ReactiveMessageService
      */
-    private boolean isValidMessageText(String message) {
+    static boolean isValidMessageText(String message) {
         return message != null && !message.isBlank() && message.length() <= 255;
     }
 }
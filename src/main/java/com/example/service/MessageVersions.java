@@ -0,0 +1,78 @@
+package com.example.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/*
+ * In-memory change counters behind the ETags of message reads
+ *
+ * One counter covers all messages, and striped counters cover single
+ * messages and single authors' timelines, each bumped by the MessageEvent of
+ * every committed write. Two authors (or messages) sharing a stripe only
+ * costs an occasional needless 200, never a wrong 304. Tags carry the
+ * process start time so counters restarting from zero cannot match a tag
+ * handed out before. Writes that bypass MessageService are not seen.
+ */
+@Component
+public class MessageVersions {
+    private static final int STRIPES = 4096;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong allMessages = new AtomicLong();
+    private final AtomicLongArray messages = new AtomicLongArray(STRIPES);
+    private final AtomicLongArray authors = new AtomicLongArray(STRIPES);
+    private final Cache messageCache;
+
+    @Autowired
+    public MessageVersions(CacheManager cacheManager) {
+        this.messageCache = cacheManager.getCache("messages");
+    }
+
+    /*
+     * The cached copy is dropped before the version moves, so a reader that
+     * sees the new tag can no longer be served the old message from the cache.
+     * For the same reason it runs after the other listeners, AuthorTimelines.
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        if (messageCache != null) {
+            messageCache.evict(event.getMessageId());
+        }
+
+        messages.incrementAndGet(stripe(event.getMessageId()));
+        if (event.getPostedBy() != null) {
+            authors.incrementAndGet(stripe(event.getPostedBy()));
+        }
+        allMessages.incrementAndGet();
+    }
+
+    // strong ETags: the JSON for a given version is always byte-for-byte the same
+
+    public String allMessagesTag() {
+        return "\"all-" + epoch + "-" + allMessages.get() + "\"";
+    }
+
+    public String messageTag(int messageId) {
+        return "\"m" + messageId + "-" + epoch + "-" + messages.get(stripe(messageId)) + "\"";
+    }
+
+    public String authorTag(int accountId) {
+        return "\"a" + accountId + "-" + epoch + "-" + authors.get(stripe(accountId)) + "\"";
+    }
+
+    /*
+     * Helper
+     */
+    private static int stripe(int id) {
+        return (id ^ (id >>> 16)) & (STRIPES - 1);
+    }
+}
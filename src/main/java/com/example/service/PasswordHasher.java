@@ -0,0 +1,148 @@
+package com.example.service;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.example.exception.ServiceOverloadedException;
+
+/*
+ * Runs password hashing on its own bounded pool
+ *
+ * Hashing is deliberately CPU-heavy. Keeping it off the request threads and
+ * capping both the workers and the queue means a burst of logins degrades
+ * into fast 503s instead of starving every other endpoint.
+ *
+ * Tasks go through the application's TaskDecorator, so per-request state
+ * such as the statement count follows them onto the pool.
+ */
+@Component
+public class PasswordHasher {
+    private final PasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    private final Executor decorated;
+    // matches nothing anyone knows, checked in place of a missing account's hash
+    private final String unknownAccountHash;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /*
+     * @param threads worker count, 0 means one per available processor
+     * @param queueCapacity how many hashes may wait before new ones are refused
+     */
+    @Autowired
+    public PasswordHasher(PasswordEncoder encoder, TaskDecorator taskDecorator,
+                          @Value("${app.security.password.threads:0}") int threads,
+                          @Value("${app.security.password.queue-capacity:64}") int queueCapacity) {
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        this.encoder = encoder;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new HasherThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.decorated = task -> executor.execute(taskDecorator.decorate(task));
+        this.unknownAccountHash = encoder.encode(UUID.randomUUID().toString());
+    }
+
+    /*
+     * Hash a raw password with the current scheme
+     * @param rawPassword the password to hash
+     * @return CompletableFuture<String> the encoded password
+     * throws ServiceOverloadedException if the pool is saturated
+     */
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(() -> encoder.encode(rawPassword));
+    }
+
+    /*
+     * Check a raw password against a stored one
+     * @param rawPassword the password the caller supplied
+     * @param encodedPassword the password as stored
+     * @return CompletableFuture<String> null if they do not match, otherwise the
+     * password to store from now on: encodedPassword itself, or a fresh hash
+     * when the stored one is plaintext or uses an outdated scheme or work factor
+     * throws ServiceOverloadedException if the pool is saturated
+     */
+    public CompletableFuture<String> verify(String rawPassword, String encodedPassword) {
+        return submit(() -> {
+            if (!encoder.matches(rawPassword, encodedPassword)) {
+                return null;
+            }
+            return encoder.upgradeEncoding(encodedPassword) ? encoder.encode(rawPassword) : encodedPassword;
+        });
+    }
+
+    /*
+     * Check a raw password against a hash nobody's password matches, for a login to an unknown account
+     * @param rawPassword the password the caller supplied
+     * @return CompletableFuture<String> always null, after as much work as a wrong password costs
+     * throws ServiceOverloadedException if the pool is saturated
+     *
+     * A missing username then takes as long as a wrong password, so login
+     * timing does not tell which usernames exist.
+     */
+    public CompletableFuture<String> verifyUnknown(String rawPassword) {
+        return submit(() -> {
+            encoder.matches(rawPassword, unknownAccountHash);
+            return null;
+        });
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /*
+     * Helper
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, decorated);
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            throw new ServiceOverloadedException("password hashing is saturated", e);
+        }
+    }
+
+    /*
+     * Helper, names the workers so they are recognisable in thread dumps
+     */
+    private static class HasherThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hasher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.service;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import com.example.entity.Account;
+import com.example.exception.UsernameTakenException;
+import com.example.repository.ReactiveAccountRepository;
+
+import io.r2dbc.spi.R2dbcException;
+import reactor.core.publisher.Mono;
+
+/*
+ * AccountService for the reactive stack, same rules, non-blocking results
+ *
+ * Password hashing still runs on PasswordHasher's bounded pool; its futures
+ * are adapted rather than blocked on.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveAccountService {
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private final ReactiveAccountRepository repository;
+    private final PasswordHasher passwordHasher;
+
+    @Autowired
+    public ReactiveAccountService(ReactiveAccountRepository repository, PasswordHasher passwordHasher) {
+        this.repository = repository;
+        this.passwordHasher = passwordHasher;
+    }
+
+    /*
+     * Add a new account to the data store
+     * @param newAccount the new account to store
+     * @return Mono<Account> the account if persisted, empty if service rules are not met
+     * errors with UsernameTakenException if the username is already registered
+     * errors with ServiceOverloadedException if password hashing is saturated
+     */
+    public Mono<Account> registerNewAccountFor(Account newAccount) {
+        if (newAccount == null) {
+            throw new IllegalArgumentException("Account object expected, no null values.");
+        }
+
+        if (!AccountService.isValidUsername(newAccount.getUsername()) ||
+        !AccountService.isValidPassword(newAccount.getPassword())) {
+            return Mono.empty();
+        }
+
+        String username = newAccount.getUsername();
+        String rawPassword = newAccount.getPassword();
+
+        return Mono.defer(() -> Mono.fromFuture(passwordHasher.encode(rawPassword)))
+                .flatMap(passwordHash -> repository.insert(username, passwordHash))
+                .onErrorMap(ReactiveAccountService::isUsernameTaken, e -> new UsernameTakenException(username, e))
+                // never hand the stored hash back to the client
+                .map(accountId -> new Account(accountId, username, rawPassword));
+    }
+
+    /*
+     * Checks whether a username can still be registered
+     * @param username the username to check
+     * @return Mono<Boolean> true if no account uses the username
+     */
+    public Mono<Boolean> isUsernameAvailable(String username) {
+        if (!AccountService.isValidUsername(username)) {
+            return Mono.just(false);
+        }
+        return repository.existsByUsername(username).map(exists -> !exists);
+    }
+
+    /*
+     * Returns account if in data store and the password matches
+     * @param account the account to look for
+     * @return Mono<Account> the account, empty if missing or the password is wrong
+     * errors with ServiceOverloadedException if password hashing is saturated
+     *
+     * A password stored as plaintext or with an outdated hash is re-hashed
+     * and saved on success. An unknown username is checked against a dummy
+     * hash, so it answers no faster than a wrong password.
+     */
+    public Mono<Account> verifyAccountExistsFor(Account account) {
+        if (account == null) {
+            throw new IllegalArgumentException("Account object expected, no null values");
+        }
+
+        if (!AccountService.isValidUsername(account.getUsername()) ||
+        !AccountService.isValidPassword(account.getPassword())) {
+            return Mono.empty();
+        }
+
+        String rawPassword = account.getPassword();
+
+        return repository.findByUsername(account.getUsername())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(found -> found.isPresent() ? verified(found.get(), rawPassword)
+                        : Mono.defer(() -> Mono.fromFuture(passwordHasher.verifyUnknown(rawPassword))).then(Mono.empty()));
+    }
+
+    /*
+     * Helper, the account if rawPassword matches its stored one, re-hashing that when outdated
+     */
+    private Mono<Account> verified(Account foundAccount, String rawPassword) {
+        String storedPassword = foundAccount.getPassword();
+
+        return Mono.defer(() -> Mono.fromFuture(passwordHasher.verify(rawPassword, storedPassword)))
+                .flatMap(currentPassword -> currentPassword.equals(storedPassword)
+                        ? Mono.just(0)
+                        : repository.updatePassword(foundAccount.getAccountId(), storedPassword, currentPassword))
+                // never hand the stored hash back to the client
+                .map(updated -> new Account(foundAccount.getAccountId(), foundAccount.getUsername(), rawPassword));
+    }
+
+    /*
+     * @param accountId the id to check
+     * @return Mono<Boolean> true if the account exists
+     */
+    public Mono<Boolean> accountExists(Integer accountId) {
+        if (accountId == null) {
+            return Mono.just(false);
+        }
+        return repository.existsById(accountId);
+    }
+
+    /*
+     * Which of the given ids belong to existing accounts
+     * @param accountIds the ids to check
+     * @return Mono<Set<Integer>> the subset that exists
+     */
+    public Mono<Set<Integer>> findExistingAccountIds(Collection<Integer> accountIds) {
+        if (accountIds == null) {
+            throw new IllegalArgumentException("accountIds cannot be null");
+        }
+        return repository.findExistingIds(accountIds).collect(HashSet::new, Set::add);
+    }
+
+    /*
+     * Helper, checks if a failed account insert lost to the unique constraint on username
+     *
+     * R2DBC reports no constraint name of its own, so the driver's message is
+     * searched for the name V7 gave it (H2 names the index after it).
+     */
+    private static boolean isUsernameTaken(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof R2dbcException) {
+                R2dbcException driver = (R2dbcException) cause;
+                return UNIQUE_VIOLATION.equals(driver.getSqlState()) && driver.getMessage() != null
+                        && driver.getMessage().toLowerCase(Locale.ROOT).contains(AccountService.USERNAME_CONSTRAINT);
+            }
+        }
+        return false;
+    }
+}
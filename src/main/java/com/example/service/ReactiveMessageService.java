@@ -0,0 +1,244 @@
+package com.example.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.example.entity.Message;
+import com.example.repository.ReactiveMessageRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+ * MessageService for the reactive stack, same rules, non-blocking results
+ *
+ * Nothing here is cached: Spring's cache annotations would store the Mono,
+ * not the message.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveMessageService {
+    private final ReactiveMessageRepository repository;
+    private final TransactionalOperator transactional;
+    private final ApplicationEventPublisher events;
+    private final MessageSearch search;
+
+    /*
+     * The transaction manager is kept private to this service; registered as a
+     * bean it would compete with the JPA one for plain @Transactional methods.
+     * Events are published once a write has completed, as in MessageService.
+     */
+    @Autowired
+    public ReactiveMessageService(ReactiveMessageRepository repository, DatabaseClient client,
+                                  ApplicationEventPublisher events, MessageSearch search) {
+        this.repository = repository;
+        this.transactional = TransactionalOperator.create(new R2dbcTransactionManager(client.getConnectionFactory()));
+        this.events = events;
+        this.search = search;
+    }
+
+    /*
+     * Added a new message to the database
+     * @param newMessage the message to add
+     * @return Mono<Message> the message if service rules are met, empty otherwise
+     */
+    public Mono<Message> createMessage(Message newMessage) {
+        if (newMessage == null) {
+            throw new IllegalArgumentException("newMessage cannot be null");
+        }
+
+        if (!MessageService.isValidMessageText(newMessage.getMessageText())) {
+            return Mono.empty();
+        }
+
+        return repository.insert(newMessage)
+                .doOnNext(message -> events.publishEvent(MessageEvent.created(message)));
+    }
+
+    /*
+     * Add a batch of new messages to the database in one transaction
+     * @param newMessages the messages to add
+     * @param knownAuthors the postedBy ids already confirmed to exist
+     * @return Mono<List<Optional<Message>>> one entry per input, empty if rejected
+     */
+    public Mono<List<Optional<Message>>> createMessages(List<Message> newMessages, Set<Integer> knownAuthors) {
+        if (newMessages == null || knownAuthors == null) {
+            throw new IllegalArgumentException("newMessages and knownAuthors cannot be null");
+        }
+
+        return Flux.fromIterable(newMessages)
+                .concatMap(newMessage -> {
+                    if (newMessage == null ||
+                    !knownAuthors.contains(newMessage.getPostedBy()) ||
+                    !MessageService.isValidMessageText(newMessage.getMessageText())) {
+                        return Mono.just(Optional.<Message>empty());
+                    }
+                    return repository.insert(newMessage).map(Optional::of);
+                })
+                .collect(() -> new ArrayList<Optional<Message>>(newMessages.size()), List::add)
+                .<List<Optional<Message>>>map(results -> results)
+                .as(transactional::transactional)
+                // after the commit, not inside the transaction
+                .doOnNext(results -> results.forEach(created ->
+                        created.ifPresent(message -> events.publishEvent(MessageEvent.created(message)))));
+    }
+
+    /*
+     * Returns all the messages in the database, in id order
+     * @return Flux<Message> the messages, read as the subscriber requests them
+     */
+    public Flux<Message> getAllMessages() {
+        return repository.findAll();
+    }
+
+    /*
+     * Returns one page of messages ordered by id (keyset pagination)
+     * @param after the last message id the caller has seen, 0 for the first page
+     * @param limit the maximum number of messages, 1 to MessageService.MAX_PAGE_SIZE
+     * @return Flux<Message> the messages with an id greater than after
+     */
+    public Flux<Message> getMessagesAfter(Integer after, int limit) {
+        if (after == null) {
+            throw new IllegalArgumentException("after cannot be null");
+        }
+        if (limit < 1 || limit > MessageService.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MessageService.MAX_PAGE_SIZE);
+        }
+        return repository.findAfter(after, limit);
+    }
+
+    /*
+     * Get a message according to the id
+     * @param id the id
+     * @return Mono<Message> the message, empty if missing
+     */
+    public Mono<Message> getMessageById(Integer id) {
+        if (id == null) {
+            throw new IllegalArgumentException("id cannot be null");
+        }
+        return repository.findById(id);
+    }
+
+    /*
+     * Update the message in the database if it belongs to the given author
+     * @param modifiedMessage the message with details to update
+     * @param authorId the author the message must belong to, null for any author
+     * @return Mono<Integer> the number of messages updated (1)
+     *
+     * NOTE: Only the message text can be updated
+     */
+    public Mono<Integer> updateMessage(Message modifiedMessage, Integer authorId) {
+        if (modifiedMessage == null) {
+            throw new IllegalArgumentException("modifiedMessage cannot be null");
+        }
+
+        Integer id = modifiedMessage.getMessageId();
+
+        if (id == null || !MessageService.isValidMessageText(modifiedMessage.getMessageText())) {
+            return Mono.just(0);
+        }
+
+        String messageText = modifiedMessage.getMessageText();
+
+        // one UPDATE either way, see MessageService.updateMessage
+        Mono<Integer> updatedBy = authorId == null
+                ? repository.updateTextByIdReturningPostedBy(id, messageText)
+                : repository.updateTextByIdAndPostedBy(id, authorId, messageText)
+                        .filter(updatedRows -> updatedRows > 0)
+                        .map(updatedRows -> authorId);
+
+        return updatedBy
+                .doOnNext(postedBy -> events.publishEvent(MessageEvent.updated(id, postedBy, messageText)))
+                .map(postedBy -> 1)
+                .defaultIfEmpty(0);
+    }
+
+    /*
+     * Delete a message by its id if it belongs to the given author
+     * @param id the message id
+     * @param authorId the author the message must belong to, null for any author
+     * @return Mono<Integer> the number of messages deleted (1)
+     */
+    public Mono<Integer> deleteMessageById(Integer id, Integer authorId) {
+        if (id == null) {
+            throw new IllegalArgumentException("id cannot be null");
+        }
+
+        Mono<Integer> deletedBy = authorId == null
+                ? repository.deleteByIdReturningPostedBy(id)
+                : repository.deleteByIdAndPostedBy(id, authorId)
+                        .filter(deletedRows -> deletedRows > 0)
+                        .map(deletedRows -> authorId);
+
+        return deletedBy
+                .doOnNext(postedBy -> events.publishEvent(MessageEvent.deleted(id, postedBy)))
+                .map(postedBy -> 1)
+                .defaultIfEmpty(0);
+    }
+
+    /*
+     * Get all the messages from a user according to the user id
+     * @param id the user id
+     * @return Flux<Message> the messages related to the user, newest first
+     */
+    public Flux<Message> getMessagesFromUserId(Integer id) {
+        if (id == null) {
+            throw new IllegalArgumentException("id cannot be null");
+        }
+        return repository.findByPostedByNewestFirst(id);
+    }
+
+    /*
+     * Get one page of the messages from a user, newest first (keyset pagination)
+     * @param id the user id
+     * @param beforeTime timePostedEpoch of the last message the caller has seen, null if it had none
+     * @param beforeMessageId id of the last message the caller has seen
+     * @param limit the maximum number of messages, 1 to MAX_PAGE_SIZE
+     * @return Flux<Message> the messages ordered after the one the caller has seen
+     *
+     * Long.MAX_VALUE and Integer.MAX_VALUE as the cursor give the first page.
+     * Messages without a time come after all the others, in descending id order.
+     */
+    public Flux<Message> getMessagesFromUserIdBefore(Integer id, Long beforeTime, int beforeMessageId, int limit) {
+        if (id == null) {
+            throw new IllegalArgumentException("id cannot be null");
+        }
+        if (limit < 1 || limit > MessageService.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MessageService.MAX_PAGE_SIZE);
+        }
+        if (beforeTime == null) {
+            return repository.findByPostedByWithoutTimeBefore(id, beforeMessageId, limit);
+        }
+        return repository.findByPostedByBefore(id, beforeTime, beforeMessageId, limit);
+    }
+
+    /*
+     * Full-text search over message text
+     * @param query the words to look for, see MessageSearch.search
+     * @param offset the number of matches to skip
+     * @param limit the maximum number of messages
+     * @return Mono<List<Message>> the matching messages, best match first
+     */
+    public Mono<List<Message>> searchMessages(String query, int offset, int limit) {
+        if (query == null) {
+            throw new IllegalArgumentException("query cannot be null");
+        }
+
+        // the index is in memory, so only loading the messages waits on the database
+        List<Integer> ids = search.search(query, offset, limit);
+
+        return repository.findAllById(ids)
+                .collectMap(Message::getMessageId)
+                .map(found -> MessageService.inRankOrder(ids, found));
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.service;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ * In-memory store of opaque session tokens issued at login
+ *
+ * Lookups are a single map read. Expiry is handled by a timing wheel: each
+ * token is also filed in the slot of the tick it expires in, and a background
+ * sweep clears one slot per tick, so expired tokens are dropped without ever
+ * scanning the whole map. Tokens do not survive a restart.
+ */
+@Component
+public class SessionTokenStore {
+    private static final int TOKEN_BYTES = 32;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Set<String>[] wheel;
+    private final long ttlMillis;
+    private final long tickMillis;
+    private final ScheduledExecutorService sweeper;
+    private long lastSweptTick;
+
+    /*
+     * @param ttlSeconds how long a token stays valid after login
+     * @param tickSeconds sweep granularity; tokens are removed at most this late
+     */
+    @Autowired
+    @SuppressWarnings("unchecked")
+    public SessionTokenStore(@Value("${app.auth.token-ttl-seconds:1800}") long ttlSeconds,
+                             @Value("${app.auth.sweep-tick-seconds:5}") long tickSeconds) {
+        if (ttlSeconds < 1 || tickSeconds < 1) {
+            throw new IllegalArgumentException("token ttl and sweep tick must be positive");
+        }
+
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.tickMillis = TimeUnit.SECONDS.toMillis(tickSeconds);
+
+        // one lap of the wheel covers a full ttl, so a slot never holds two generations
+        int slots = (int) (ttlSeconds / tickSeconds) + 2;
+        this.wheel = new Set[slots];
+        for (int i = 0; i < slots; i++) {
+            wheel[i] = ConcurrentHashMap.newKeySet();
+        }
+
+        this.lastSweptTick = System.currentTimeMillis() / tickMillis - 1;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-token-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleAtFixedRate(this::sweep, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+     * Issue a new token for an account
+     * @param accountId the account that just logged in
+     * @return String the token, URL-safe
+     */
+    public String issue(Integer accountId) {
+        if (accountId == null) {
+            throw new IllegalArgumentException("accountId cannot be null");
+        }
+
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        sessions.put(token, new Session(accountId, expiresAt));
+        wheel[slotFor(expiresAt)].add(token);
+
+        return token;
+    }
+
+    /*
+     * Find the account a token was issued to
+     * @param token the token presented by the client
+     * @return Optional the account id, empty if unknown or expired
+     */
+    public Optional<Integer> resolve(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+
+        Session session = sessions.get(token);
+
+        // the sweep may lag by up to a tick, so check expiry here too
+        if (session == null || session.expiresAt <= System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(session.accountId);
+    }
+
+    /*
+     * Invalidate a token before it expires
+     * @param token the token to drop
+     */
+    public void revoke(String token) {
+        if (token == null) {
+            return;
+        }
+
+        Session session = sessions.remove(token);
+        if (session != null) {
+            wheel[slotFor(session.expiresAt)].remove(token);
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /*
+     * Helper, clears the slots of every tick completed since the last sweep
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        long currentTick = now / tickMillis;
+
+        for (long tick = lastSweptTick + 1; tick < currentTick; tick++) {
+            Set<String> slot = wheel[(int) (tick % wheel.length)];
+            for (String token : slot) {
+                Session session = sessions.get(token);
+                if (session == null || session.expiresAt <= now) {
+                    sessions.remove(token);
+                    slot.remove(token);
+                }
+            }
+        }
+        lastSweptTick = currentTick - 1;
+    }
+
+    /*
+     * Helper
+     */
+    private int slotFor(long expiresAt) {
+        return (int) ((expiresAt / tickMillis) % wheel.length);
+    }
+
+    private static class Session {
+        private final Integer accountId;
+        private final long expiresAt;
+
+        private Session(Integer accountId, long expiresAt) {
+            this.accountId = accountId;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
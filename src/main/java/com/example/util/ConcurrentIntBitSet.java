@@ -0,0 +1,80 @@
+package com.example.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Thread-safe set of non-negative ints, one bit per value
+ *
+ * Bits live in 8KB pages of 65536 values that are allocated on first use, so
+ * a few clustered ids cost a few pages rather than 256MB for the full int
+ * range. Values can be added but never removed.
+ */
+public class ConcurrentIntBitSet {
+    private static final int PAGE_SHIFT = 16;
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+    private static final int WORDS_PER_PAGE = (1 << PAGE_SHIFT) / 64;
+
+    private final AtomicReferenceArray<AtomicLongArray> pages = new AtomicReferenceArray<>(1 << (31 - PAGE_SHIFT));
+    private final AtomicLong size = new AtomicLong();
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+
+        AtomicLongArray page = pages.get(value >>> PAGE_SHIFT);
+        if (page == null) {
+            return false;
+        }
+
+        int bit = value & PAGE_MASK;
+        return (page.get(bit >>> 6) & (1L << bit)) != 0;
+    }
+
+    /*
+     * @return boolean true if the value was not already present
+     */
+    public boolean add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("only non-negative values can be stored: " + value);
+        }
+
+        AtomicLongArray page = pageFor(value >>> PAGE_SHIFT);
+        int bit = value & PAGE_MASK;
+        int word = bit >>> 6;
+        long mask = 1L << bit;
+        long current;
+
+        do {
+            current = page.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!page.compareAndSet(word, current, current | mask));
+
+        size.incrementAndGet();
+        return true;
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    /*
+     * Helper, allocates a page on first use; a losing racer adopts the winner's page
+     */
+    private AtomicLongArray pageFor(int index) {
+        AtomicLongArray page = pages.get(index);
+        if (page != null) {
+            return page;
+        }
+
+        AtomicLongArray fresh = new AtomicLongArray(WORDS_PER_PAGE);
+        if (pages.compareAndSet(index, null, fresh)) {
+            return fresh;
+        }
+        return pages.get(index);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+
+/*
+ * Logs exceptions with their stack trace at most once per window for each
+ * kind of failure, counting the repeats in between
+ *
+ * A kind is the exception class and the frame it was thrown from, so an
+ * error storm from one cause writes one trace per window with the number of
+ * repeats since the last one, while distinct failures still each get their
+ * own. Once maxKinds kinds are known, new ones share a single kind, so the
+ * output stays bounded whatever is thrown.
+ */
+public class ExceptionLog {
+    private final Logger log;
+    private final long windowNanos;
+    private final int maxKinds;
+    private final ConcurrentMap<Kind, Window> windows = new ConcurrentHashMap<>();
+    private final Window others;
+
+    public ExceptionLog(Logger log, long window, TimeUnit unit, int maxKinds) {
+        if (window <= 0 || maxKinds < 1) {
+            throw new IllegalArgumentException("window and maxKinds must be positive");
+        }
+        this.log = log;
+        this.windowNanos = unit.toNanos(window);
+        this.maxKinds = maxKinds;
+        this.others = new Window(System.nanoTime() - windowNanos);
+    }
+
+    /*
+     * Logs the exception at error level, or only counts it if its kind was logged within the window
+     * @param event what failed, the event= field of the line
+     */
+    public void error(String event, Throwable e) {
+        long now = System.nanoTime();
+        Window window = windowFor(e, now);
+
+        long start = window.start.get();
+        if (now - start < windowNanos || !window.start.compareAndSet(start, now)) {
+            window.repeats.incrementAndGet();
+            return;
+        }
+
+        log.error("event={} exception={} repeats={}", event, e.getClass().getName(), window.repeats.getAndSet(0), e);
+    }
+
+    private Window windowFor(Throwable e, long now) {
+        StackTraceElement[] trace = e.getStackTrace();
+        Kind kind = new Kind(e.getClass(), trace.length == 0 ? null : trace[0]);
+
+        Window window = windows.get(kind);
+        if (window == null) {
+            if (windows.size() >= maxKinds) {
+                return others;
+            }
+            window = windows.computeIfAbsent(kind, k -> new Window(now - windowNanos));
+        }
+        return window;
+    }
+
+    private static final class Kind {
+        final Class<?> type;
+        final StackTraceElement thrownAt;
+
+        Kind(Class<?> type, StackTraceElement thrownAt) {
+            this.type = type;
+            this.thrownAt = thrownAt;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Kind)) {
+                return false;
+            }
+            Kind kind = (Kind) other;
+            return type == kind.type && (thrownAt == null ? kind.thrownAt == null : thrownAt.equals(kind.thrownAt));
+        }
+
+        @Override
+        public int hashCode() {
+            return type.hashCode() * 31 + (thrownAt == null ? 0 : thrownAt.hashCode());
+        }
+    }
+
+    // start of the current window, and the repeats not logged since the last trace
+    private static final class Window {
+        final AtomicLong start;
+        final AtomicInteger repeats = new AtomicInteger();
+
+        Window(long start) {
+            this.start = new AtomicLong(start);
+        }
+    }
+}
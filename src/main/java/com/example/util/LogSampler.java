@@ -0,0 +1,29 @@
+package com.example.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Lets one call in every n through, for debug logs on hot paths
+ *
+ * Check the level first, so nothing is counted while debug is off:
+ *   if (log.isDebugEnabled() && sampler.sample()) { log.debug(...); }
+ */
+public class LogSampler {
+    private final int every;
+    private final AtomicLong calls = new AtomicLong();
+
+    public LogSampler(int every) {
+        if (every < 1) {
+            throw new IllegalArgumentException("every must be at least 1");
+        }
+        this.every = every;
+    }
+
+    public boolean sample() {
+        return every == 1 || calls.getAndIncrement() % every == 0;
+    }
+
+    public int every() {
+        return every;
+    }
+}
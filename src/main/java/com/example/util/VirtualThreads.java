@@ -0,0 +1,47 @@
+package com.example.util;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/*
+ * Virtual-thread executors, looked up reflectively
+ *
+ * The build targets Java 11 for Spring Boot 2.5, so the JDK 21 API cannot be
+ * linked against directly. On an older runtime nothing is found.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /*
+     * @param namePrefix thread names are namePrefix followed by a counter
+     * @return Optional an executor starting one virtual thread per task,
+     * empty if the running JDK has no virtual threads
+     */
+    public static Optional<ExecutorService> newThreadPerTaskExecutor(String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return Optional.of((ExecutorService) perTask.invoke(null, factory));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
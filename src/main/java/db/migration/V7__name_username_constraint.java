@@ -0,0 +1,40 @@
+package db.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/*
+ * Gives the unique constraint on account.username a name, uk_account_username
+ *
+ * V1 declared it inline, so H2 generated its name and the violation message
+ * only said which table and column. A constraint cannot be renamed without
+ * knowing its generated name, so this one is a Java migration: it looks
+ * the name up, drops that constraint and adds the named one. AccountService
+ * recognizes a taken username by this name.
+ */
+public class V7__name_username_constraint extends BaseJavaMigration {
+    private static final String GENERATED_NAME = "select tc.constraint_name from information_schema.table_constraints tc"
+            + " join information_schema.key_column_usage k"
+            + " on k.constraint_schema = tc.constraint_schema and k.constraint_name = tc.constraint_name"
+            + " where tc.table_name = 'ACCOUNT' and tc.constraint_type = 'UNIQUE' and k.column_name = 'USERNAME'";
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+
+        try (PreparedStatement query = connection.prepareStatement(GENERATED_NAME);
+             ResultSet names = query.executeQuery();
+             Statement alter = connection.createStatement()) {
+            while (names.next()) {
+                alter.execute("alter table account drop constraint \"" + names.getString(1) + "\"");
+            }
+            alter.execute("alter table account add constraint uk_account_username unique (username)");
+        }
+    }
+}
@@ -0,0 +1,15 @@
+create table account (
+    accountId int primary key auto_increment,
+    username varchar(255) not null unique,
+    password varchar(255)
+);
+create table message (
+    messageId int primary key auto_increment,
+    postedBy int,
+    messageText varchar(255),
+    timePostedEpoch bigint,
+    foreign key (postedBy) references account(accountId)
+);
+
+-- ids handed out by Hibernate for @GeneratedValue entities
+create sequence hibernate_sequence start with 1 increment by 1;
@@ -0,0 +1,6 @@
+-- Author timelines: equality on postedBy, newest first, messageId as the tie-breaker.
+-- Carrying messageId makes the index usable for keyset paging within an author.
+create index idx_message_postedby_time on message (postedBy, timePostedEpoch desc, messageId);
+
+-- account.username is already backed by the index of its unique constraint,
+-- which serves both findByUsername and findByUsernameAndPassword.
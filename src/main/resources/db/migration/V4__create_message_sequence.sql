@@ -0,0 +1,2 @@
+-- message ids come in blocks of 50 (pooled-lo), must match allocation-size in META-INF/orm.xml
+create sequence message_seq start with 1 increment by 50;
@@ -0,0 +1,4 @@
+-- account ids come in blocks like message ids (app.id.account-block-size), so the tables
+-- no longer share hibernate_sequence
+create sequence account_seq start with 1 increment by ${account-block-size};
+drop sequence hibernate_sequence;
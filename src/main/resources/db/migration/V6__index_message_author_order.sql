@@ -0,0 +1,4 @@
+-- Author timelines and their keyset pages order by timePostedEpoch desc, messageId desc,
+-- but V3 declared messageId ascending. Rebuild the index in the queries' own order.
+drop index idx_message_postedby_time;
+create index idx_message_postedby_time on message (postedBy, timePostedEpoch desc, messageId desc);
@@ -0,0 +1,5 @@
+-- runs after every migrate: keep each sequence's increment equal to its id block size
+-- (app.id.*-block-size). Safe to change between runs, the next block starts past every
+-- block already handed out. Replaces the fixed increment V4 gave message_seq.
+alter sequence account_seq increment by ${account-block-size};
+alter sequence message_seq increment by ${message-block-size};
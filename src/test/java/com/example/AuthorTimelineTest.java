@@ -0,0 +1,199 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class AuthorTimelineTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app with room for only 3 messages per
+     * timeline, and create a new webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {"--app.timeline.capacity=3"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return webClient.send(request.header("Content-Type", "application/json").build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private Message postMessage(String text, long timePostedEpoch) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":9999,\"messageText\": \"" + text
+                        + "\",\"timePostedEpoch\": " + timePostedEpoch + "}")));
+        Assertions.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), Message.class);
+    }
+
+    private Message postTimelessMessage(int postedBy) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":" + postedBy + ",\"messageText\": \"timeless\"}")));
+        Assertions.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), Message.class);
+    }
+
+    private List<Message> getTimeline(String uri) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder().uri(URI.create(uri)));
+        Assertions.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+    }
+
+    /**
+     * Sending GET localhost:8080/accounts/9999/messages?limit=2 and following the rel="next" links,
+     * past the 3 messages the timeline keeps in memory
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every message of 9999 exactly once, newest first; no Link once a page comes back short
+     */
+    @Test
+    public void pagesFollowNextLinksPastTheTimeline() throws IOException, InterruptedException {
+        List<Integer> expectedIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expectedIds.add(0, postMessage("message " + i, 1669947800L + i).getMessageId());
+        }
+        expectedIds.add(9999);
+
+        List<Integer> actualIds = new ArrayList<>();
+        Optional<String> next = Optional.of("http://localhost:8080/accounts/9999/messages?limit=2");
+        while (next.isPresent()) {
+            HttpResponse<String> response = send(HttpRequest.newBuilder().uri(URI.create(next.get())));
+            Assertions.assertEquals(200, response.statusCode());
+            List<Message> page = objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+            page.forEach(message -> actualIds.add(message.getMessageId()));
+
+            next = response.headers().firstValue("Link")
+                    .map(link -> link.substring(link.indexOf('<') + 1, link.indexOf('>')));
+            Assertions.assertEquals(page.size() == 2, next.isPresent());
+        }
+
+        Assertions.assertEquals(expectedIds, actualIds);
+    }
+
+    /**
+     * Reading GET localhost:8080/accounts/9999/messages, then creating, updating and deleting a newer message
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: each read reflects the write before it, for pages and the full list alike
+     */
+    @Test
+    public void timelineFollowsWrites() throws IOException, InterruptedException {
+        Message seeded = new Message(9999, 9999, "test message 1", 1669947792L);
+        Assertions.assertEquals(List.of(seeded), getTimeline("http://localhost:8080/accounts/9999/messages?limit=10"));
+
+        Message created = postMessage("newest", 1669947900L);
+        Assertions.assertEquals(List.of(created, seeded), getTimeline("http://localhost:8080/accounts/9999/messages"));
+
+        HttpResponse<String> patched = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + created.getMessageId()))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"edited\"}")));
+        Assertions.assertEquals(200, patched.statusCode());
+        created.setMessageText("edited");
+        Assertions.assertEquals(List.of(created), getTimeline("http://localhost:8080/accounts/9999/messages?limit=1"));
+
+        HttpResponse<String> deleted = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + created.getMessageId()))
+                .DELETE());
+        Assertions.assertEquals(200, deleted.statusCode());
+        Assertions.assertEquals(List.of(seeded), getTimeline("http://localhost:8080/accounts/9999/messages?limit=10"));
+    }
+
+    /**
+     * Sending GET localhost:8080/accounts/9999/messages?limit=2 and following the rel="next" links,
+     * with some messages posted without a time, then paging 9997 after one arrives in its timeline
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the timed messages newest first, then those without a time by descending id,
+     *  continued by 'null:messageId' cursors; the same order as the full list
+     */
+    @Test
+    public void messagesWithoutTimeComeLast() throws IOException, InterruptedException {
+        Message newest = postMessage("timed", 1669947900L);
+        List<Integer> timeless = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            timeless.add(0, postTimelessMessage(9999).getMessageId());
+        }
+
+        List<Integer> expectedIds = new ArrayList<>(List.of(newest.getMessageId(), 9999));
+        expectedIds.addAll(timeless);
+
+        List<Integer> actualIds = new ArrayList<>();
+        String lastLink = null;
+        Optional<String> next = Optional.of("http://localhost:8080/accounts/9999/messages?limit=2");
+        while (next.isPresent()) {
+            HttpResponse<String> response = send(HttpRequest.newBuilder().uri(URI.create(next.get())));
+            Assertions.assertEquals(200, response.statusCode());
+            List<Message> page = objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+            page.forEach(message -> actualIds.add(message.getMessageId()));
+
+            lastLink = next.get();
+            next = response.headers().firstValue("Link")
+                    .map(link -> link.substring(link.indexOf('<') + 1, link.indexOf('>')));
+        }
+
+        Assertions.assertEquals(expectedIds, actualIds);
+        Assertions.assertTrue(lastLink.endsWith("before=null:" + timeless.get(1) + "&limit=2"), lastLink);
+        List<Integer> allIds = new ArrayList<>();
+        getTimeline("http://localhost:8080/accounts/9999/messages").forEach(message -> allIds.add(message.getMessageId()));
+        Assertions.assertEquals(expectedIds, allIds);
+
+        // 9997's timeline is complete and already loaded, so this page comes from memory
+        Message seeded = new Message(9997, 9997, "test message 2", 1669947792L);
+        Assertions.assertEquals(List.of(seeded), getTimeline("http://localhost:8080/accounts/9997/messages?limit=10"));
+        Message untimed = postTimelessMessage(9997);
+        Assertions.assertEquals(List.of(untimed),
+                getTimeline("http://localhost:8080/accounts/9997/messages?limit=1&before=1669947792:9997"));
+        Assertions.assertEquals(List.of(),
+                getTimeline("http://localhost:8080/accounts/9997/messages?limit=1&before=null:" + untimed.getMessageId()));
+    }
+
+    /**
+     * Sending GET localhost:8080/accounts/9999/messages?before=9999 (cursor without its time)
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void malformedCursorIsRejected() throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages?before=9999")));
+        Assertions.assertEquals(400, response.statusCode());
+    }
+}
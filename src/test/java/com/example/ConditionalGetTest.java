@@ -0,0 +1,127 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+public class ConditionalGetTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path));
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String etagOf(HttpResponse<?> response) {
+        List<String> etags = response.headers().allValues("ETag");
+        Assertions.assertEquals(1, etags.size());
+        return etags.get(0);
+    }
+
+    private void patchMessage(int messageId, String text) throws IOException, InterruptedException {
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + messageId))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"" + text + "\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/9999 again with the ETag of the first response
+     *
+     * Expected Response:
+     *  Status Code: 304
+     *  Response Body: empty, same ETag
+     */
+    @Test
+    public void unchangedMessageIsNotModified() throws IOException, InterruptedException {
+        HttpResponse<String> first = get("/messages/9999", null);
+        Assertions.assertEquals(200, first.statusCode());
+        String etag = etagOf(first);
+
+        HttpResponse<String> second = get("/messages/9999", etag);
+        Assertions.assertEquals(304, second.statusCode());
+        Assertions.assertEquals("", second.body());
+        Assertions.assertEquals(etag, etagOf(second));
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/9999 and GET localhost:8080/messages with old ETags after PATCHing message 9999
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the updated message(s), new ETags
+     */
+    @Test
+    public void updateChangesMessageAndCollectionTags() throws IOException, InterruptedException {
+        String messageTag = etagOf(get("/messages/9999", null));
+        String allTag = etagOf(get("/messages", null));
+
+        patchMessage(9999, "updated");
+
+        HttpResponse<String> message = get("/messages/9999", messageTag);
+        Assertions.assertEquals(200, message.statusCode());
+        Assertions.assertTrue(message.body().contains("\"updated\""));
+        Assertions.assertNotEquals(messageTag, etagOf(message));
+
+        HttpResponse<String> all = get("/messages", allTag);
+        Assertions.assertEquals(200, all.statusCode());
+        Assertions.assertTrue(all.body().contains("\"updated\""));
+        Assertions.assertNotEquals(allTag, etagOf(all));
+    }
+
+    /**
+     * Sending GET localhost:8080/accounts/9999/messages with its ETag after another author's message changed, then after one of its own did
+     *
+     * Expected Response:
+     *  Status Code: 304, then 200
+     *  Response Body: empty, then account 9999's messages
+     */
+    @Test
+    public void authorTagOnlyMovesWithThatAuthor() throws IOException, InterruptedException {
+        String etag = etagOf(get("/accounts/9999/messages", null));
+
+        patchMessage(9997, "someone else");
+        Assertions.assertEquals(304, get("/accounts/9999/messages", etag).statusCode());
+
+        patchMessage(9999, "mine");
+        HttpResponse<String> changed = get("/accounts/9999/messages", etag);
+        Assertions.assertEquals(200, changed.statusCode());
+        Assertions.assertTrue(changed.body().contains("\"mine\""));
+    }
+}
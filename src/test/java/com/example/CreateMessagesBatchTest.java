@@ -0,0 +1,120 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CreateMessagesBatchTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with a JSON array holding a valid message,
+     * a message from an unknown user and a message with blank text
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: one result per message; 200 with the stored message, then 400, 400
+     */
+    @Test
+    public void createMessagesBatchJsonArray() throws IOException, InterruptedException {
+        String json = "[{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}," +
+                "{\"postedBy\":5050,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}," +
+                "{\"postedBy\":9999,\"messageText\": \"\",\"timePostedEpoch\": 1669947792}]";
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<JsonNode> results = objectMapper.readValue(response.body().toString(), new TypeReference<List<JsonNode>>(){});
+        Assertions.assertEquals(3, results.size(), "Expected one result per message, Actual=" + results);
+        Assertions.assertEquals(200, results.get(0).get("status").asInt());
+        Assertions.assertEquals(400, results.get(1).get("status").asInt());
+        Assertions.assertEquals(400, results.get(2).get("status").asInt());
+        Message expectedResult = new Message(1, 9999, "hello message", 1669947792L);
+        Message actualResult = objectMapper.treeToValue(results.get(0).get("message"), Message.class);
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with one message per line (NDJSON)
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: a 200 result for each line, with consecutive ids
+     */
+    @Test
+    public void createMessagesBatchNdjson() throws IOException, InterruptedException {
+        String ndjson = "{\"postedBy\":9999,\"messageText\": \"first\",\"timePostedEpoch\": 1669947792}\n" +
+                "{\"postedBy\":9998,\"messageText\": \"second\",\"timePostedEpoch\": 1669947793}\n";
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(ndjson))
+                .header("Content-Type", "application/x-ndjson")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<JsonNode> results = objectMapper.readValue(response.body().toString(), new TypeReference<List<JsonNode>>(){});
+        Assertions.assertEquals(2, results.size(), "Expected one result per message, Actual=" + results);
+        Assertions.assertEquals(1, results.get(0).get("message").get("messageId").asInt());
+        Assertions.assertEquals(2, results.get(1).get("message").get("messageId").asInt());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with a truncated JSON body
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void createMessagesBatchMalformedJson() throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString("[{\"postedBy\":9999,"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+}
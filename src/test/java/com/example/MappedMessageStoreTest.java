@@ -0,0 +1,253 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.example.repository.MappedMessageRepository;
+import com.example.repository.MessageRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class MappedMessageStoreTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    @TempDir
+    Path storeDirectory;
+
+    /**
+     * Before every test, reset the database, start the app on the mmap profile with an empty store
+     * directory, and create a new webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        start();
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private void start(String... extraArgs) throws InterruptedException {
+        String[] args = new String[extraArgs.length + 2];
+        args[0] = "--spring.profiles.active=mmap";
+        args[1] = "--app.store.mmap.directory=" + storeDirectory;
+        System.arraycopy(extraArgs, 0, args, 2, extraArgs.length);
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return webClient.send(request.header("Content-Type", "application/json").build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private <T> T read(HttpResponse<String> response, TypeReference<T> type) throws IOException {
+        Assertions.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), type);
+    }
+
+    /**
+     * The mmap profile puts MappedMessageRepository in front of the JPA repository
+     */
+    @Test
+    public void mappedRepositoryIsPrimary() {
+        Assertions.assertTrue(app.getBean(MessageRepository.class) instanceof MappedMessageRepository);
+    }
+
+    /**
+     * Creating, updating and deleting messages through the API, against the seeded messages copied into the log
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the same results the message table would give
+     */
+    @Test
+    public void apiRunsOnTheLog() throws IOException, InterruptedException {
+        Assertions.assertEquals(List.of(new Message(9996, 9996, "test message 3", 1669947792L),
+                        new Message(9997, 9997, "test message 2", 1669947792L),
+                        new Message(9999, 9999, "test message 1", 1669947792L)),
+                read(send(HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/messages"))),
+                        new TypeReference<List<Message>>(){}));
+
+        Message created = read(send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"postedBy\":9999,\"messageText\": \"stored off-heap\",\"timePostedEpoch\": 1669947800}"))),
+                new TypeReference<Message>(){});
+        Assertions.assertEquals(10000, created.getMessageId());
+
+        HttpResponse<String> patched = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/10000"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"edited é\"}")));
+        Assertions.assertEquals(200, patched.statusCode());
+
+        Assertions.assertEquals(List.of(new Message(10000, 9999, "edited é", 1669947800L),
+                        new Message(9999, 9999, "test message 1", 1669947792L)),
+                read(send(HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/accounts/9999/messages"))),
+                        new TypeReference<List<Message>>(){}));
+
+        HttpResponse<String> deleted = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9997"))
+                .DELETE());
+        Assertions.assertEquals(200, deleted.statusCode());
+
+        HttpResponse<String> missing = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9997")));
+        Assertions.assertEquals(200, missing.statusCode());
+        Assertions.assertEquals("", missing.body());
+    }
+
+    /**
+     * Writing messages, restarting the app on the same store directory, then reading them back
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the log as it was before the restart, not a fresh copy of the message table
+     */
+    @Test
+    public void logSurvivesRestart() throws IOException, InterruptedException {
+        Assertions.assertEquals(200, send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"postedBy\":9997,\"messageText\": \"survives\",\"timePostedEpoch\": 1669947800}"))).statusCode());
+        Assertions.assertEquals(200, send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .DELETE()).statusCode());
+
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+        start();
+
+        Assertions.assertEquals(List.of(new Message(10000, 9997, "survives", 1669947800L),
+                        new Message(9997, 9997, "test message 2", 1669947792L)),
+                read(send(HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/accounts/9997/messages"))),
+                        new TypeReference<List<Message>>(){}));
+        Assertions.assertEquals("", send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))).body());
+    }
+
+    /**
+     * Many clients reading at once straight after a restart, when no text has been mapped yet,
+     * then a write and a second restart
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every read sees its own text, and the write lands beside the old texts, not over them
+     */
+    @Test
+    public void concurrentReadsAfterRestart() throws IOException, InterruptedException {
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+        start();
+
+        List<CompletableFuture<HttpResponse<String>>> reads = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            reads.add(webClient.sendAsync(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages/" + (i % 2 == 0 ? 9999 : 9997))).build(),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        for (int i = 0; i < reads.size(); i++) {
+            Message message = read(reads.get(i).join(), new TypeReference<Message>(){});
+            Assertions.assertEquals(i % 2 == 0 ? "test message 1" : "test message 2", message.getMessageText());
+        }
+
+        Assertions.assertEquals(200, send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"postedBy\":9996,\"messageText\": \"after the reads\",\"timePostedEpoch\": 1669947800}"))).statusCode());
+
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+        start();
+
+        Assertions.assertEquals(List.of(new Message(9996, 9996, "test message 3", 1669947792L),
+                        new Message(9997, 9997, "test message 2", 1669947792L),
+                        new Message(9999, 9999, "test message 1", 1669947792L),
+                        new Message(10000, 9996, "after the reads", 1669947800L)),
+                read(send(HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/messages"))),
+                        new TypeReference<List<Message>>(){}));
+    }
+
+    /**
+     * Paging one author's messages by cursor, with times posted out of order, a tie, a message
+     * without a time and an edit
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: each page newest first by time then id, the untimed message last, continuing
+     *  where the last one stopped, and the same first page after a restart
+     */
+    @Test
+    public void authorPagesOnTheLog() throws IOException, InterruptedException {
+        // timelines off, so every page is read from the log
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+        start("--app.timeline.capacity=0");
+
+        for (long time : new long[] {1669947900L, 1669947850L, 1669947900L, 1669947800L}) {
+            Assertions.assertEquals(200, send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages"))
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"postedBy\":9999,\"messageText\": \"at " + time + "\",\"timePostedEpoch\": " + time + "}")))
+                    .statusCode());
+        }
+        Assertions.assertEquals(200, send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":9999,\"messageText\": \"no time\"}")))
+                .statusCode());
+        Assertions.assertEquals(200, send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/10000"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"edited\"}"))).statusCode());
+
+        List<Message> firstPage = List.of(new Message(10002, 9999, "at 1669947900", 1669947900L),
+                new Message(10000, 9999, "edited", 1669947900L));
+        Assertions.assertEquals(firstPage,
+                read(send(HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/accounts/9999/messages?limit=2"))),
+                        new TypeReference<List<Message>>(){}));
+        Assertions.assertEquals(List.of(new Message(10001, 9999, "at 1669947850", 1669947850L),
+                        new Message(10003, 9999, "at 1669947800", 1669947800L)),
+                read(send(HttpRequest.newBuilder().uri(URI.create(
+                        "http://localhost:8080/accounts/9999/messages?limit=2&before=1669947900:10000"))),
+                        new TypeReference<List<Message>>(){}));
+        Assertions.assertEquals(List.of(new Message(9999, 9999, "test message 1", 1669947792L),
+                        new Message(10004, 9999, "no time", null)),
+                read(send(HttpRequest.newBuilder().uri(URI.create(
+                        "http://localhost:8080/accounts/9999/messages?limit=2&before=1669947800:10003"))),
+                        new TypeReference<List<Message>>(){}));
+        Assertions.assertEquals(List.of(),
+                read(send(HttpRequest.newBuilder().uri(URI.create(
+                        "http://localhost:8080/accounts/9999/messages?limit=2&before=null:10004"))),
+                        new TypeReference<List<Message>>(){}));
+
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+        start("--app.timeline.capacity=0");
+
+        Assertions.assertEquals(firstPage,
+                read(send(HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/accounts/9999/messages?limit=2"))),
+                        new TypeReference<List<Message>>(){}));
+    }
+}
@@ -0,0 +1,152 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class MessageSearchTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> search(String query) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/search?" + query))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Integer> searchIds(String query) throws IOException, InterruptedException {
+        HttpResponse<String> response = search(query);
+        Assertions.assertEquals(200, response.statusCode());
+        List<Message> messages = objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+        return messages.stream().map(Message::getMessageId).collect(Collectors.toList());
+    }
+
+    // the index trails writes by up to app.search.max-stale-millis
+    private List<Integer> searchIdsOnceIndexed(String query, List<Integer> expectedIds) throws IOException, InterruptedException {
+        List<Integer> ids = searchIds(query);
+        for (int attempt = 0; attempt < 50 && !ids.equals(expectedIds); attempt++) {
+            Thread.sleep(100);
+            ids = searchIds(query);
+        }
+        return ids;
+    }
+
+    private Message postMessage(String text) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":9999,\"messageText\": \"" + text
+                        + "\",\"timePostedEpoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), Message.class);
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/search?q=message (seeded messages, indexed at startup) in pages of 2
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the 3 seeded messages, equal scores ordered newest id first, split over two pages
+     */
+    @Test
+    public void searchFindsSeededMessagesInPages() throws IOException, InterruptedException {
+        Assertions.assertEquals(List.of(9999, 9997), searchIds("q=message&limit=2"));
+        Assertions.assertEquals(List.of(9996), searchIds("q=message&offset=2&limit=2"));
+        Assertions.assertEquals(List.of(9997), searchIds("q=message%202"));
+        Assertions.assertEquals(List.of(), searchIds("q=nothing"));
+    }
+
+    /**
+     * Posting two messages containing 'kiwi', then GET localhost:8080/messages/search?q=kiwi
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the message where kiwi carries more weight ranks first
+     */
+    @Test
+    public void searchRanksByRelevance() throws IOException, InterruptedException {
+        Message diluted = postMessage("a kiwi among many other words in a rather long message");
+        Message focused = postMessage("kiwi kiwi");
+
+        List<Integer> expectedIds = List.of(focused.getMessageId(), diluted.getMessageId());
+        Assertions.assertEquals(expectedIds, searchIdsOnceIndexed("q=kiwi", expectedIds));
+    }
+
+    /**
+     * Updating message 9999 and deleting message 9997, then searching for the old and new text
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the index follows both writes
+     */
+    @Test
+    public void searchFollowsUpdatesAndDeletes() throws IOException, InterruptedException {
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"renamed\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9997"))
+                .DELETE()
+                .build();
+        Assertions.assertEquals(200, webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        Assertions.assertEquals(List.of(9999), searchIdsOnceIndexed("q=renamed", List.of(9999)));
+        Assertions.assertEquals(List.of(9996), searchIdsOnceIndexed("q=message", List.of(9996)));
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/search with a blank query, and with a page out of range
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void invalidSearchIsRejected() throws IOException, InterruptedException {
+        Assertions.assertEquals(400, search("q=%20").statusCode());
+        Assertions.assertEquals(400, search("q=message&limit=0").statusCode());
+        Assertions.assertEquals(400, search("q=message&offset=-1").statusCode());
+    }
+}
@@ -0,0 +1,190 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class MessageStreamTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Stream<String> eventStream;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        if (eventStream != null) {
+            eventStream.close();
+        }
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /*
+     * Open GET /messages/stream and collect its lines, returning once the server confirmed the subscription
+     */
+    private BlockingQueue<String> subscribe(String query) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/stream" + query))
+                .header("Accept", "text/event-stream")
+                .build();
+        HttpResponse<Stream<String>> response = webClient.send(request, HttpResponse.BodyHandlers.ofLines());
+        Assertions.assertEquals(200, response.statusCode());
+
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        eventStream = response.body();
+        Thread reader = new Thread(() -> eventStream.forEach(lines::add));
+        reader.setDaemon(true);
+        reader.start();
+
+        Assertions.assertEquals(":subscribed", lines.poll(5, TimeUnit.SECONDS));
+        return lines;
+    }
+
+    private JsonNode nextEvent(BlockingQueue<String> lines, String expectedName) throws IOException, InterruptedException {
+        String line;
+        while ((line = lines.poll(5, TimeUnit.SECONDS)) != null) {
+            if (line.startsWith("event:")) {
+                Assertions.assertEquals(expectedName, line.substring("event:".length()));
+            } else if (line.startsWith("data:")) {
+                return objectMapper.readTree(line.substring("data:".length()));
+            }
+        }
+        return Assertions.fail("no event within 5 seconds");
+    }
+
+    private void postMessage(int postedBy, String text) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":" + postedBy
+                        + ",\"messageText\": \"" + text + "\",\"timePostedEpoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(postRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    /**
+     * Subscribing to GET localhost:8080/messages/stream, then creating and deleting a message
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: a 'created' event carrying the new message, then a 'deleted' event for it
+     */
+    @Test
+    public void streamReceivesCreateAndDelete() throws IOException, InterruptedException {
+        BlockingQueue<String> lines = subscribe("");
+
+        postMessage(9999, "pushed");
+        JsonNode created = nextEvent(lines, "created");
+        Assertions.assertEquals("CREATED", created.get("type").asText());
+        Assertions.assertEquals(1, created.get("messageId").asInt());
+        Assertions.assertEquals(9999, created.get("postedBy").asInt());
+        Assertions.assertEquals("pushed", created.get("messageText").asText());
+
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .DELETE()
+                .build();
+        Assertions.assertEquals(200, webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        JsonNode deleted = nextEvent(lines, "deleted");
+        Assertions.assertEquals(1, deleted.get("messageId").asInt());
+        Assertions.assertEquals(9999, deleted.get("postedBy").asInt());
+    }
+
+    /**
+     * Subscribing to GET localhost:8080/messages/stream?postedBy=9997, then posting as 9999 and as 9997
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: only the event for the message posted by 9997
+     */
+    @Test
+    public void streamFiltersByAuthor() throws IOException, InterruptedException {
+        BlockingQueue<String> lines = subscribe("?postedBy=9997");
+
+        postMessage(9999, "not for this subscriber");
+        postMessage(9997, "for this subscriber");
+
+        JsonNode created = nextEvent(lines, "created");
+        Assertions.assertEquals(9997, created.get("postedBy").asInt());
+        Assertions.assertEquals("for this subscriber", created.get("messageText").asText());
+    }
+
+    /**
+     * One subscriber that stops reading while thousands of changes are pushed, with a single dispatch thread,
+     * then a change for a second subscriber that does read
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the reading subscriber still gets its event; the stalled one holds up nobody
+     */
+    @Test
+    public void stalledSubscriberDoesNotBlockOthers() throws IOException, InterruptedException {
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+        app = SpringApplication.run(SocialMediaApp.class, "--app.feed.dispatch-threads=1");
+        Thread.sleep(500);
+
+        try (Socket stalled = new Socket()) {
+            stalled.setReceiveBufferSize(1024);
+            stalled.connect(new InetSocketAddress("localhost", 8080));
+            OutputStream request = stalled.getOutputStream();
+            request.write(("GET /messages/stream HTTP/1.1\r\nHost: localhost\r\nAccept: text/event-stream\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            request.flush();
+
+            BlockingQueue<String> lines = subscribe("?postedBy=9997");
+
+            // far more than the stalled connection's socket buffers hold
+            StringBuilder batch = new StringBuilder();
+            String text = "x".repeat(250);
+            for (int i = 0; i < 9000; i++) {
+                batch.append("{\"postedBy\":9999,\"messageText\":\"").append(text)
+                        .append("\",\"timePostedEpoch\":1669947792}\n");
+            }
+            HttpRequest batchRequest = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages/batch"))
+                    .POST(HttpRequest.BodyPublishers.ofString(batch.toString()))
+                    .header("Content-Type", "application/x-ndjson")
+                    .build();
+            Assertions.assertEquals(200, webClient.send(batchRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+            postMessage(9997, "still delivered");
+            JsonNode created = nextEvent(lines, "created");
+            Assertions.assertEquals("still delivered", created.get("messageText").asText());
+        }
+    }
+}
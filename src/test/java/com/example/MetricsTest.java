@@ -0,0 +1,78 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+public class MetricsTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending GET localhost:8080/actuator/prometheus after reading a message
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the endpoint, service, repository, pool and Hibernate metrics in Prometheus format
+     */
+    @Test
+    public void prometheusScrapeCoversTheRequest() throws IOException, InterruptedException {
+        Assertions.assertEquals(200, get("/messages/9999").statusCode());
+
+        HttpResponse<String> response = get("/actuator/prometheus");
+        Assertions.assertEquals(200, response.statusCode());
+
+        String body = response.body();
+        Assertions.assertTrue(body.matches("(?s).*http_server_requests_seconds_count\\{[^}]*uri=\"/messages/\\{messageId}\".*"), body);
+        Assertions.assertTrue(body.matches("(?s).*app_service_seconds_count\\{[^}]*method=\"getMessageById\",service=\"MessageService\".*"), body);
+        Assertions.assertTrue(body.matches("(?s).*app_repository_seconds_count\\{[^}]*repository=\"MessageRepository\".*"), body);
+        Assertions.assertTrue(body.contains("hikaricp_connections_active"), body);
+        Assertions.assertTrue(body.contains("hibernate_statements_total"), body);
+    }
+
+    /**
+     * Sending GET localhost:8080/actuator/env
+     *
+     * Expected Response:
+     *  Status Code: 404, only health and prometheus are exposed
+     */
+    @Test
+    public void otherActuatorEndpointsAreNotExposed() throws IOException, InterruptedException {
+        Assertions.assertEquals(404, get("/actuator/env").statusCode());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Account;
+import com.example.repository.AccountRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class PasswordHashingTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> post(String path, String json) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending POST localhost:8080/login twice for a seeded account whose password is stored as plaintext
+     *
+     * Expected Response:
+     *  Status Code: 200 both times
+     *  Response Body: JSON representation of user object
+     *  Stored password: hashed after the first login
+     */
+    @Test
+    public void loginMigratesPlaintextPassword() throws IOException, InterruptedException {
+        String json = "{\"username\":\"testuser1\",\"password\":\"password\"}";
+        Account expectedResult = new Account(9999, "testuser1", "password");
+        for (int i = 0; i < 2; i++) {
+            HttpResponse<String> response = post("/login", json);
+            int status = response.statusCode();
+            Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+            Account actualResult = objectMapper.readValue(response.body().toString(), Account.class);
+            Assertions.assertEquals(expectedResult, actualResult);
+        }
+        String storedPassword = app.getBean(AccountRepository.class).findByUsername("testuser1").getPassword();
+        Assertions.assertTrue(storedPassword.startsWith("{bcrypt}"), "Expected a bcrypt hash, but was " + storedPassword);
+    }
+
+    /**
+     * Sending POST localhost:8080/register, then POST localhost:8080/login with the same and a wrong password
+     *
+     * Expected Response:
+     *  Status Code: 200, then 401
+     *  Stored password: never the plaintext
+     */
+    @Test
+    public void registeredPasswordIsHashed() throws IOException, InterruptedException {
+        post("/register", "{\"username\":\"user\",\"password\":\"password\"}");
+        String storedPassword = app.getBean(AccountRepository.class).findByUsername("user").getPassword();
+        Assertions.assertNotEquals("password", storedPassword);
+        int status = post("/login", "{\"username\":\"user\",\"password\":\"password\"}").statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        status = post("/login", "{\"username\":\"user\",\"password\":\"pass404\"}").statusCode();
+        Assertions.assertEquals(401, status, "Expected Status Code 401 - Actual Code was: " + status);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.controller.ReactiveSocialMediaController;
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class ReactiveStackTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app on the reactive profile, and create a new
+     * webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {"--spring.profiles.active=reactive"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * The reactive profile serves the API from ReactiveSocialMediaController
+     */
+    @Test
+    public void reactiveControllerServesTheApi() {
+        Assertions.assertNotNull(app.getBean(ReactiveSocialMediaController.class));
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages, then GET localhost:8080/messages/{id}
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the created message, read back through R2DBC
+     */
+    @Test
+    public void createThenGetMessage() throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":9999,\"messageText\": \"hello reactive\",\"timePostedEpoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> postResponse = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, postResponse.statusCode());
+        Message created = objectMapper.readValue(postResponse.body(), Message.class);
+        Assertions.assertEquals(new Message(1, 9999, "hello reactive", 1669947792L), created);
+
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + created.getMessageId()))
+                .build();
+        HttpResponse<String> getResponse = webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, getResponse.statusCode());
+        Assertions.assertEquals(created, objectMapper.readValue(getResponse.body(), Message.class));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages with Accept: application/x-ndjson
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: one JSON message per line, in id order
+     */
+    @Test
+    public void streamMessagesAsNdjson() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .header("Accept", "application/x-ndjson")
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        String[] lines = response.body().trim().split("\n");
+        Assertions.assertEquals(3, lines.length, "Expected one line per message, Actual=" + response.body());
+        Assertions.assertEquals(9996, objectMapper.readValue(lines[0], Message.class).getMessageId());
+        Assertions.assertEquals(9999, objectMapper.readValue(lines[2], Message.class).getMessageId());
+    }
+
+    /**
+     * Sending GET localhost:8080/accounts/9999/messages?limit=2 and following the rel="next" links
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every message of 9999 exactly once, newest first; no Link once a page comes back short
+     */
+    @Test
+    public void pageAuthorMessagesByCursor() throws IOException, InterruptedException {
+        List<Integer> expectedIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            HttpRequest postRequest = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":9999,\"messageText\": \"message " + i
+                            + "\",\"timePostedEpoch\": " + (1669947800L + i) + "}"))
+                    .header("Content-Type", "application/json")
+                    .build();
+            HttpResponse<String> postResponse = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+            expectedIds.add(0, objectMapper.readValue(postResponse.body(), Message.class).getMessageId());
+        }
+        expectedIds.add(9999);
+
+        List<Integer> actualIds = new ArrayList<>();
+        Optional<String> next = Optional.of("http://localhost:8080/accounts/9999/messages?limit=2");
+        while (next.isPresent()) {
+            HttpRequest getRequest = HttpRequest.newBuilder().uri(URI.create(next.get())).build();
+            HttpResponse<String> response = webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(200, response.statusCode());
+            List<Message> page = objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+            page.forEach(message -> actualIds.add(message.getMessageId()));
+
+            next = response.headers().firstValue("Link")
+                    .map(link -> link.substring(link.indexOf('<') + 1, link.indexOf('>')));
+            Assertions.assertEquals(page.size() == 2, next.isPresent());
+        }
+
+        Assertions.assertEquals(expectedIds, actualIds);
+    }
+}
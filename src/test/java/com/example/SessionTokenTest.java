@@ -0,0 +1,135 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class SessionTokenTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private String login() throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"testuser1\",\"password\":\"password\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+        return response.headers().firstValue("X-Session-Token").orElseThrow();
+    }
+
+    private HttpResponse<String> postMessage(String json, String token) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .build();
+        return webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Logging in, then sending POST localhost:8080/messages with the session token and no postedBy
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the message, posted by the logged in account
+     */
+    @Test
+    public void createMessageAsCaller() throws IOException, InterruptedException {
+        String token = login();
+        HttpResponse<String> response = postMessage("{\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}", token);
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        Message actualResult = objectMapper.readValue(response.body().toString(), Message.class);
+        Assertions.assertEquals(Integer.valueOf(9999), actualResult.getPostedBy());
+    }
+
+    /**
+     * Logging in as testuser1, then sending POST localhost:8080/messages as testuser2
+     *
+     * Expected Response:
+     *  Status Code: 403
+     */
+    @Test
+    public void createMessageForSomeoneElse() throws IOException, InterruptedException {
+        String token = login();
+        HttpResponse<String> response = postMessage("{\"postedBy\":9998,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}", token);
+        int status = response.statusCode();
+        Assertions.assertEquals(403, status, "Expected Status Code 403 - Actual Code was: " + status);
+    }
+
+    /**
+     * Logging in as testuser1, then sending PATCH localhost:8080/messages/9997 (posted by testuser3)
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void updateMessageOfSomeoneElse() throws IOException, InterruptedException {
+        String token = login();
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9997"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\": \"text changed\"}"))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .build();
+        HttpResponse<String> response = webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+
+    /**
+     * Logging in, logging out, then sending POST localhost:8080/messages with the revoked token
+     *
+     * Expected Response:
+     *  Status Code: 401
+     */
+    @Test
+    public void createMessageAfterLogout() throws IOException, InterruptedException {
+        String token = login();
+        HttpRequest logoutRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/logout"))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .header("Authorization", "Bearer " + token)
+                .build();
+        webClient.send(logoutRequest, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = postMessage("{\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}", token);
+        int status = response.statusCode();
+        Assertions.assertEquals(401, status, "Expected Status Code 401 - Actual Code was: " + status);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example;
+
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.Assertions;
+
+import com.example.config.StatementCountConfig;
+
+/**
+ * Reads how many JDBC statements a request ran from its X-Statement-Count header.
+ * The app has to be started with the dev profile (--spring.profiles.active=dev)
+ * for the header to be sent.
+ */
+public final class StatementCount {
+
+    private StatementCount() {
+    }
+
+    /**
+     * @return the number of statements the request ran
+     */
+    public static int of(HttpResponse<?> response) {
+        String count = response.headers().firstValue(StatementCountConfig.HEADER)
+                .orElseThrow(() -> new AssertionError("No " + StatementCountConfig.HEADER + " header, is the dev profile active?"));
+        return Integer.parseInt(count);
+    }
+
+    /**
+     * Fails unless the request ran at most the given number of statements
+     */
+    public static void assertAtMost(int budget, HttpResponse<?> response) {
+        int count = of(response);
+        Assertions.assertTrue(count <= budget, "Expected at most " + budget + " statements - Actual count was: " + count);
+    }
+}
@@ -29,7 +29,7 @@ public class UpdateMessageTest {
     public void setUp() throws InterruptedException {
         webClient = HttpClient.newHttpClient();
         objectMapper = new ObjectMapper();
-        String[] args = new String[] {};
+        String[] args = new String[] {"--spring.profiles.active=dev"};
         app = SpringApplication.run(SocialMediaApp.class, args);
         Thread.sleep(500);
     }
@@ -123,4 +123,26 @@ public class UpdateMessageTest {
         int status = response.statusCode();
         Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
     }
+
+
+    /**
+     * Sending an http request to PATCH localhost:8080/messages/9999 (message id exists in db)
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  X-Statement-Count: at most 1, the update alone
+     */
+    @Test
+    public void updateMessageStatementBudget() throws IOException, InterruptedException {
+    	String json = "{\"messageText\": \"text changed\"}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        StatementCount.assertAtMost(1, response);
+    }
 }
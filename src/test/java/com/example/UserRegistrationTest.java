@@ -30,7 +30,7 @@ public class UserRegistrationTest {
     public void setUp() throws InterruptedException {
         webClient = HttpClient.newHttpClient();
         objectMapper = new ObjectMapper();
-        String[] args = new String[] {};
+        String[] args = new String[] {"--spring.profiles.active=dev"};
         app = SpringApplication.run(SocialMediaApp.class, args);
         Thread.sleep(500);
     }
@@ -83,4 +83,77 @@ public class UserRegistrationTest {
         Assertions.assertEquals(200, status1, "Expected Status Code 200 - Actual Code was: " + status1);
         Assertions.assertEquals(409, status2, "Expected Status Code 409 - Actual Code was: " + status2);
     }
+
+
+    /**
+     * Sending an http request to POST localhost:8080/register with a username longer than the column
+     * 
+     * Expected Response:
+     *  Status Code: 400 (rejected by the service rules, before any insert)
+     */
+    @Test
+    public void registerUserUsernameTooLong() throws IOException, InterruptedException {
+        String json = "{\"username\":\"" + "u".repeat(256) + "\",\"password\":\"password\"}";
+    	HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+
+
+    /**
+     * Sending an http request to POST localhost:8080/register when username does not exist in the system
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  X-Statement-Count: at most 2, the insert and at most one id block from the sequence
+     */
+    @Test
+    public void registerUserStatementBudget() throws IOException, InterruptedException {
+        String json = "{\"username\":\"user\",\"password\":\"password\"}";
+    	HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        StatementCount.assertAtMost(2, response);
+    }
+
+
+    /**
+     * Sending two http requests to POST localhost:8080/register with new usernames
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: consecutive account ids, both from one id block
+     *  X-Statement-Count: 1 for the second, the insert alone
+     */
+    @Test
+    public void registerUsersConsecutiveIds() throws IOException, InterruptedException {
+    	HttpRequest postRequest1 = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"user1\",\"password\":\"password\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpRequest postRequest2 = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"user2\",\"password\":\"password\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response1 = webClient.send(postRequest1, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response2 = webClient.send(postRequest2, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response1.statusCode(), "Expected Status Code 200 - Actual Code was: " + response1.statusCode());
+        Assertions.assertEquals(200, response2.statusCode(), "Expected Status Code 200 - Actual Code was: " + response2.statusCode());
+        int accountId1 = objectMapper.readTree(response1.body()).get("accountId").asInt();
+        int accountId2 = objectMapper.readTree(response2.body()).get("accountId").asInt();
+        Assertions.assertEquals(accountId1 + 1, accountId2);
+        Assertions.assertEquals(1, StatementCount.of(response2));
+    }
 }
@@ -0,0 +1,84 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class UsernameAvailabilityTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private Boolean isAvailable(String username) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/available?username=" + username))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        return objectMapper.readValue(response.body().toString(), Boolean.class);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/available?username=testuser1 (username exists)
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: false
+     */
+    @Test
+    public void usernameTaken() throws IOException, InterruptedException {
+        Assertions.assertFalse(isAvailable("testuser1"), "Expected testuser1 to be taken");
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/available?username=user before and after
+     * registering that username
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: true, then false
+     */
+    @Test
+    public void usernameTakenAfterRegistration() throws IOException, InterruptedException {
+        Assertions.assertTrue(isAvailable("user"), "Expected user to be available");
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"user\",\"password\":\"password\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertFalse(isAvailable("user"), "Expected user to be taken after registering it");
+    }
+}
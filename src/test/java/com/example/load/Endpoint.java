@@ -0,0 +1,44 @@
+package com.example.load;
+
+/*
+ * The operations a load run can mix, with the statuses each may legitimately answer
+ */
+enum Endpoint {
+    REGISTER("register", 200),
+    LOGIN("login", 200),
+    CREATE("create", 200),
+    GET("get", 200),
+    // a PATCH racing a DELETE of the same message is a legitimate 400
+    PATCH("patch", 200, 400),
+    DELETE("delete", 200);
+
+    private final String label;
+    private final int[] expectedStatuses;
+
+    Endpoint(String label, int... expectedStatuses) {
+        this.label = label;
+        this.expectedStatuses = expectedStatuses;
+    }
+
+    String label() {
+        return label;
+    }
+
+    boolean isExpected(int status) {
+        for (int expected : expectedStatuses) {
+            if (expected == status) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static Endpoint fromLabel(String label) {
+        for (Endpoint endpoint : values()) {
+            if (endpoint.label.equals(label)) {
+                return endpoint;
+            }
+        }
+        throw new IllegalArgumentException("unknown endpoint in load mix: " + label);
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.SocialMediaApp;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * Open-model HTTP load run against a live app, excluded from the default build
+ *
+ * Requests are started on a fixed arrival schedule whether or not earlier ones
+ * have answered, so a slow server shows up as latency rather than as a quietly
+ * lowered request rate. Run with:
+ *
+ *   mvn -Pload test -Dload.rate=500 -Dload.duration=60
+ *
+ * Optional: -Dload.mix=get=40,create=25,... -Dload.report=target/load-report.txt
+ */
+@Tag("load")
+public class HttpLoadTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    private static final String BASE_URL = "http://localhost:8080";
+    private static final String DEFAULT_MIX = "register=5,login=10,create=25,get=40,patch=10,delete=10";
+    private static final int SEEDED_ACCOUNT_ID = 9999;
+    private static final int[] SEEDED_MESSAGE_IDS = {9996, 9997, 9999};
+    private static final int RECENT_MESSAGE_SLOTS = 4096;
+    private static final int MAX_IN_FLIGHT = 10_000;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final double rate = Double.parseDouble(System.getProperty("load.rate", "200"));
+    private final long durationSeconds = Long.parseLong(System.getProperty("load.duration", "30"));
+    private final LoadMix mix = new LoadMix(System.getProperty("load.mix", DEFAULT_MIX));
+    private final Path reportFile = Path.of(System.getProperty("load.report", "target/load-report.txt"));
+    private final double maxErrorRate = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+
+    // ring of recently created message ids that reads, edits and deletes pick from
+    private final AtomicIntegerArray recentMessageIds = new AtomicIntegerArray(RECENT_MESSAGE_SLOTS);
+    private final AtomicLong recentMessageCount = new AtomicLong();
+    private final AtomicLong registrations = new AtomicLong();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+        for (int messageId : SEEDED_MESSAGE_IDS) {
+            rememberMessage(messageId);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Drive the configured endpoint mix at a fixed arrival rate, then write the latency report
+     *
+     * Expected: fewer than load.max-error-rate of the requests fail or answer an unexpected status
+     */
+    @Test
+    public void fixedArrivalRateMix() throws Exception {
+        LatencyReport report = new LatencyReport();
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        Random random = new Random(42);
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long totalRequests = (long) (rate * durationSeconds);
+        long start = System.nanoTime();
+
+        for (long i = 0; i < totalRequests; i++) {
+            long intendedStart = start + i * intervalNanos;
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Endpoint endpoint = mix.pick(random);
+            if (!inFlight.tryAcquire()) {
+                // the client itself is saturated: count it as unanswered rather than stall the schedule
+                report.recordUnanswered(endpoint, REQUEST_TIMEOUT.toNanos());
+                continue;
+            }
+
+            send(endpoint, random).whenComplete((response, failure) -> {
+                if (failure == null && endpoint.isExpected(response.statusCode())) {
+                    report.recordSuccess(endpoint, intendedStart);
+                    onSuccess(endpoint, response);
+                } else {
+                    // a timeout completes here after REQUEST_TIMEOUT, so it counts at its full wait
+                    report.recordError(endpoint, intendedStart);
+                }
+                inFlight.release();
+            });
+        }
+
+        if (!inFlight.tryAcquire(MAX_IN_FLIGHT, 30, TimeUnit.SECONDS)) {
+            Assertions.fail("requests still in flight 30s after the schedule ended");
+        }
+
+        report.write(reportFile, rate, durationSeconds);
+        System.out.println(report.render(rate, durationSeconds));
+
+        double errorRate = (double) report.totalErrors() / Math.max(1, report.totalCount());
+        Assertions.assertTrue(errorRate < maxErrorRate,
+                "error rate " + errorRate + " above " + maxErrorRate + ", see " + reportFile);
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(Endpoint endpoint, Random random) {
+        HttpRequest.Builder request;
+        switch (endpoint) {
+            case REGISTER:
+                request = HttpRequest.newBuilder(URI.create(BASE_URL + "/register"))
+                        .POST(json("{\"username\":\"load-" + runId + "-" + registrations.incrementAndGet()
+                                + "\",\"password\":\"password\"}"));
+                break;
+            case LOGIN:
+                request = HttpRequest.newBuilder(URI.create(BASE_URL + "/login"))
+                        .POST(json("{\"username\":\"testuser1\",\"password\":\"password\"}"));
+                break;
+            case CREATE:
+                request = HttpRequest.newBuilder(URI.create(BASE_URL + "/messages"))
+                        .POST(json("{\"postedBy\":" + SEEDED_ACCOUNT_ID
+                                + ",\"messageText\":\"load message\",\"timePostedEpoch\":" + System.currentTimeMillis() + "}"));
+                break;
+            case GET:
+                request = HttpRequest.newBuilder(URI.create(BASE_URL + "/messages/" + pickMessage(random))).GET();
+                break;
+            case PATCH:
+                request = HttpRequest.newBuilder(URI.create(BASE_URL + "/messages/" + pickMessage(random)))
+                        .method("PATCH", json("{\"messageText\":\"edited under load\"}"));
+                break;
+            case DELETE:
+                request = HttpRequest.newBuilder(URI.create(BASE_URL + "/messages/" + pickMessage(random))).DELETE();
+                break;
+            default:
+                throw new IllegalStateException("unhandled endpoint " + endpoint);
+        }
+        request.header("Content-Type", "application/json").timeout(REQUEST_TIMEOUT);
+        return webClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void onSuccess(Endpoint endpoint, HttpResponse<String> response) {
+        if (endpoint != Endpoint.CREATE) {
+            return;
+        }
+        try {
+            rememberMessage(objectMapper.readTree(response.body()).get("messageId").asInt());
+        } catch (Exception e) {
+            // the request itself succeeded, losing one id only narrows the pool
+        }
+    }
+
+    /*
+     * Helpers
+     */
+    private static HttpRequest.BodyPublisher json(String body) {
+        return HttpRequest.BodyPublishers.ofString(body);
+    }
+
+    private void rememberMessage(int messageId) {
+        long slot = recentMessageCount.getAndIncrement();
+        recentMessageIds.set((int) (slot % RECENT_MESSAGE_SLOTS), messageId);
+    }
+
+    private int pickMessage(Random random) {
+        long filled = Math.min(recentMessageCount.get(), RECENT_MESSAGE_SLOTS);
+        return recentMessageIds.get(random.nextInt((int) filled));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.load;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/*
+ * Per-endpoint latency and error histograms for one load run
+ *
+ * Latency is measured from the moment a request was scheduled to start, not
+ * from when it was actually sent, so time spent queued behind a stalled
+ * client or server is counted instead of hidden. Every request lands in its
+ * endpoint's histogram, failed ones included (a timeout at its full wait), so
+ * an overloaded run cannot look faster by failing; failures are also kept in
+ * an error histogram shown alongside.
+ */
+class LatencyReport {
+    private static final long MAX_TRACKED_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Map<Endpoint, Histogram> latencies = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, Histogram> errors = new EnumMap<>(Endpoint.class);
+
+    LatencyReport() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            latencies.put(endpoint, new ConcurrentHistogram(MAX_TRACKED_NANOS, 3));
+            errors.put(endpoint, new ConcurrentHistogram(MAX_TRACKED_NANOS, 3));
+        }
+    }
+
+    // a request that was answered, or failed, just now; latency counts from its intended start
+    void recordSuccess(Endpoint endpoint, long intendedStartNanos) {
+        record(endpoint, System.nanoTime() - intendedStartNanos, false);
+    }
+
+    void recordError(Endpoint endpoint, long intendedStartNanos) {
+        record(endpoint, System.nanoTime() - intendedStartNanos, true);
+    }
+
+    // a request that was never answered, counted as taking latencyNanos (its timeout)
+    void recordUnanswered(Endpoint endpoint, long latencyNanos) {
+        record(endpoint, latencyNanos, true);
+    }
+
+    long totalCount() {
+        long total = 0;
+        for (Histogram histogram : latencies.values()) {
+            total += histogram.getTotalCount();
+        }
+        return total;
+    }
+
+    long totalErrors() {
+        long total = 0;
+        for (Histogram histogram : errors.values()) {
+            total += histogram.getTotalCount();
+        }
+        return total;
+    }
+
+    /*
+     * Summary table in milliseconds, followed by the full percentile
+     * distribution of every endpoint that saw traffic
+     */
+    String render(double targetRate, long durationSeconds) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+
+        out.printf("target rate %.0f req/s for %d s, %d requests, %d errors%n%n",
+                targetRate, durationSeconds, totalCount(), totalErrors());
+        out.printf("latencies cover every request, errors included; the err columns are the errors alone%n%n");
+        out.printf("%-10s %8s %7s %10s %10s %10s %10s %10s %10s%n", "endpoint", "count", "errors",
+                "p50 ms", "p99 ms", "p99.9 ms", "max ms", "err p50 ms", "err max ms");
+
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram histogram = latencies.get(endpoint);
+            Histogram failed = errors.get(endpoint);
+            out.printf("%-10s %8d %7d %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f%n", endpoint.label(),
+                    histogram.getTotalCount(), failed.getTotalCount(),
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()),
+                    millis(failed.getValueAtPercentile(50)), millis(failed.getMaxValue()));
+        }
+
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram histogram = latencies.get(endpoint);
+            if (histogram.getTotalCount() > 0) {
+                out.printf("%n--- %s (ms)%n", endpoint.label());
+                histogram.outputPercentileDistribution(out, 1_000_000.0);
+            }
+            Histogram failed = errors.get(endpoint);
+            if (failed.getTotalCount() > 0) {
+                out.printf("%n--- %s errors (ms)%n", endpoint.label());
+                failed.outputPercentileDistribution(out, 1_000_000.0);
+            }
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    void write(Path file, double targetRate, long durationSeconds) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.writeString(file, render(targetRate, durationSeconds));
+    }
+
+    /*
+     * Helpers
+     */
+    private void record(Endpoint endpoint, long latencyNanos, boolean failed) {
+        long latency = Math.max(0, Math.min(latencyNanos, MAX_TRACKED_NANOS));
+        latencies.get(endpoint).recordValue(latency);
+        if (failed) {
+            errors.get(endpoint).recordValue(latency);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
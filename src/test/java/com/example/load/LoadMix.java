@@ -0,0 +1,51 @@
+package com.example.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/*
+ * Weighted choice of endpoints, parsed from e.g. "get=40,create=25,login=10"
+ */
+class LoadMix {
+    private final Endpoint[] endpoints;
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+
+    LoadMix(String spec) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("expected endpoint=weight, got: " + entry);
+            }
+            weights.put(Endpoint.fromLabel(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+
+        endpoints = new Endpoint[weights.size()];
+        cumulativeWeights = new int[weights.size()];
+        int total = 0;
+        int i = 0;
+        for (Map.Entry<Endpoint, Integer> weight : weights.entrySet()) {
+            total += weight.getValue();
+            endpoints[i] = weight.getKey();
+            cumulativeWeights[i] = total;
+            i++;
+        }
+
+        if (total <= 0) {
+            throw new IllegalArgumentException("load mix needs a positive total weight: " + spec);
+        }
+        totalWeight = total;
+    }
+
+    Endpoint pick(Random random) {
+        int ticket = random.nextInt(totalWeight);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (ticket < cumulativeWeights[i]) {
+                return endpoints[i];
+            }
+        }
+        return endpoints[endpoints.length - 1];
+    }
+}